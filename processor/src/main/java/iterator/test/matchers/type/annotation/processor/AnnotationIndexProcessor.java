@@ -0,0 +1,312 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation.processor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.SimpleAnnotationValueVisitor9;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+// Writes META-INF/iterator/annotation-index listing every compiled class with the runtime
+// annotations directly present on it and its fields, in the format AnnotationIndex reads. Only
+// explicitly given members are written; defaults are left to the annotation type at runtime.
+// Alongside it, META-INF/iterator/annotation-types lists every runtime annotation type used
+// anywhere in the declarations compiled, which AnnotationBloomFilter reads instead of the classes.
+@SupportedAnnotationTypes("*")
+public class AnnotationIndexProcessor extends AbstractProcessor {
+
+  public static final String RESOURCE = "META-INF/iterator/annotation-index";
+
+  public static final String TYPES_RESOURCE = "META-INF/iterator/annotation-types";
+
+  static final String HEADER = "# annotation index 1";
+
+  private final class ValueEncoder extends SimpleAnnotationValueVisitor9<String, Void> {
+
+    @Override
+    protected String defaultAction(Object value, Void unused) {
+      return encode(String.valueOf(value));
+    }
+
+    @Override
+    public String visitAnnotation(AnnotationMirror mirror, Void unused) {
+      return annotation(mirror);
+    }
+
+    @Override
+    public String visitArray(List<? extends AnnotationValue> values, Void unused) {
+      StringJoiner joiner = new StringJoiner(",", "{", "}");
+      values.forEach(value -> joiner.add(value.accept(this, null)));
+      return joiner.toString();
+    }
+
+    @Override
+    public String visitEnumConstant(VariableElement constant, Void unused) {
+      return constant.getSimpleName().toString();
+    }
+
+    @Override
+    public String visitType(TypeMirror type, Void unused) {
+      return className(type);
+    }
+  }
+
+  // class name to its index lines, gathered over every round and written once at the end
+  private final SortedMap<String, List<String>> classes = new TreeMap<>();
+
+  // runtime annotation types on any declaration or type use compiled, over every round
+  private final SortedSet<String> annotationTypes = new TreeSet<>();
+
+  private static String encode(String str) {
+    return URLEncoder.encode(str, UTF_8);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getRootElements()) {
+      if (element instanceof TypeElement) index((TypeElement) element);
+    }
+    if (roundEnv.processingOver() && !classes.isEmpty()) write();
+    // indexing never claims annotations from other processors
+    return false;
+  }
+
+  private String annotation(AnnotationMirror mirror) {
+    StringJoiner joiner = new StringJoiner(",", "(", ")");
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> member :
+        mirror.getElementValues().entrySet()) {
+      joiner.add(
+          member.getKey().getSimpleName()
+              + "="
+              + member.getValue().accept(new ValueEncoder(), null));
+    }
+    TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+    return "@" + processingEnv.getElementUtils().getBinaryName(type) + joiner;
+  }
+
+  private String className(TypeMirror type) {
+    switch (type.getKind()) {
+      case ARRAY:
+        return className(((ArrayType) type).getComponentType()) + "[]";
+      case DECLARED:
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        return processingEnv.getElementUtils().getBinaryName(element).toString();
+      default:
+        return type.getKind().name().toLowerCase();
+    }
+  }
+
+  private void collect(AnnotationMirror mirror) {
+    if (isRuntimeRetained(mirror)) {
+      TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+      annotationTypes.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+    }
+  }
+
+  // the element's own annotations, those on the types it declares and, for methods, on its
+  // parameters and type parameters
+  private void collect(Element element) {
+    element.getAnnotationMirrors().forEach(this::collect);
+    collect(element.asType());
+    if (element instanceof ExecutableElement) {
+      ExecutableElement executable = (ExecutableElement) element;
+      collect(executable.getReturnType());
+      executable.getParameters().forEach(this::collect);
+      executable.getThrownTypes().forEach(this::collect);
+      executable.getTypeParameters().forEach(this::collect);
+    } else if (element instanceof TypeParameterElement) {
+      ((TypeParameterElement) element).getBounds().forEach(this::collect);
+    } else if (element instanceof TypeElement) {
+      TypeElement type = (TypeElement) element;
+      collect(type.getSuperclass());
+      type.getInterfaces().forEach(this::collect);
+      type.getTypeParameters().forEach(this::collect);
+    }
+  }
+
+  private void collect(TypeMirror type) {
+    type.getAnnotationMirrors().forEach(this::collect);
+    switch (type.getKind()) {
+      case ARRAY:
+        collect(((ArrayType) type).getComponentType());
+        break;
+      case DECLARED:
+        ((DeclaredType) type).getTypeArguments().forEach(this::collect);
+        break;
+      case WILDCARD:
+        WildcardType wildcard = (WildcardType) type;
+        if (wildcard.getExtendsBound() != null) collect(wildcard.getExtendsBound());
+        if (wildcard.getSuperBound() != null) collect(wildcard.getSuperBound());
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void index(TypeElement type) {
+    String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+    List<String> lines = new ArrayList<>();
+    index(lines, name, "type", type);
+    collect(type);
+    for (Element enclosed : type.getEnclosedElements()) {
+      if (!(enclosed instanceof TypeElement)) collect(enclosed);
+      if (enclosed.getKind() == ElementKind.FIELD
+          || enclosed.getKind() == ElementKind.ENUM_CONSTANT)
+        index(lines, name, "field " + enclosed.getSimpleName(), enclosed);
+      else if (enclosed instanceof TypeElement) index((TypeElement) enclosed);
+    }
+    classes.put(name, lines);
+  }
+
+  private void index(List<String> lines, String className, String element, Element annotated) {
+    for (AnnotationMirror mirror : annotated.getAnnotationMirrors()) {
+      if (isRuntimeRetained(mirror))
+        lines.add(String.format("%s\t%s\t%s", className, element, annotation(mirror)));
+    }
+  }
+
+  private boolean isRuntimeRetained(AnnotationMirror mirror) {
+    Retention retention = mirror.getAnnotationType().asElement().getAnnotation(Retention.class);
+    return retention != null && retention.value() == RetentionPolicy.RUNTIME;
+  }
+
+  // an incremental compile sees only the classes it recompiles, so the rest of the index is kept
+  // from the last build, less the classes that no longer exist
+  private void merge() {
+    List<String> lines;
+    try {
+      FileObject file =
+          processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE);
+      try (BufferedReader reader =
+          new BufferedReader(new InputStreamReader(file.openInputStream(), UTF_8))) {
+        lines = reader.lines().collect(Collectors.toList());
+      }
+    } catch (IOException e) {
+      // no earlier index, this is a full build
+      return;
+    }
+    Elements elements = processingEnv.getElementUtils();
+    Map<String, List<String>> kept = new TreeMap<>();
+    for (String line : lines) {
+      if (line.isEmpty() || line.startsWith("#")) continue;
+      int tab = line.indexOf('\t');
+      String name = tab < 0 ? line : line.substring(0, tab);
+      if (classes.containsKey(name) || elements.getTypeElement(name.replace('$', '.')) == null)
+        continue;
+      List<String> annotations = kept.computeIfAbsent(name, key -> new ArrayList<>());
+      if (tab >= 0) annotations.add(line);
+    }
+    classes.putAll(kept);
+  }
+
+  // stale names from classes since removed only cost a jar being read
+  private void mergeTypes() {
+    try {
+      FileObject file =
+          processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", TYPES_RESOURCE);
+      try (BufferedReader reader =
+          new BufferedReader(new InputStreamReader(file.openInputStream(), UTF_8))) {
+        reader.lines().filter(line -> !line.isEmpty()).forEach(annotationTypes::add);
+      }
+    } catch (IOException e) {
+      // no earlier list, this is a full build
+    }
+  }
+
+  private void write() {
+    merge();
+    mergeTypes();
+    try {
+      FileObject file =
+          processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE);
+      try (Writer writer = new OutputStreamWriter(file.openOutputStream(), UTF_8)) {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Map.Entry<String, List<String>> entry : classes.entrySet()) {
+          writer.write(entry.getKey());
+          writer.write('\n');
+          for (String line : entry.getValue()) {
+            writer.write(line);
+            writer.write('\n');
+          }
+        }
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Cannot write " + RESOURCE + ": " + e);
+    }
+    try {
+      FileObject file =
+          processingEnv
+              .getFiler()
+              .createResource(StandardLocation.CLASS_OUTPUT, "", TYPES_RESOURCE);
+      try (Writer writer = new OutputStreamWriter(file.openOutputStream(), UTF_8)) {
+        for (String annotationType : annotationTypes) {
+          writer.write(annotationType);
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Cannot write " + TYPES_RESOURCE + ": " + e);
+    }
+  }
+}
@@ -0,0 +1,402 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation.processor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.SimpleAnnotationValueVisitor9;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+// Generates, for each annotation type named by @GenerateAnnotationMaps, a <Type>Map class in the
+// annotated package. It is the type's AnnotationMetadata, registered as a service, and offers a
+// builder with one typed setter per member, so a misspelt member fails to compile.
+@SupportedAnnotationTypes(AnnotationMapBuilderProcessor.TRIGGER)
+public class AnnotationMapBuilderProcessor extends AbstractProcessor {
+
+  public static final String SERVICE =
+      "META-INF/services/iterator.test.matchers.type.annotation.AnnotationMetadata";
+
+  // what native-image cannot discover on its own: annotation members read by the jdk, the
+  // metadata constructors ServiceLoader calls and the interfaces AnnotationProxy implements
+  public static final String REFLECT_CONFIG =
+      "META-INF/native-image/iterator-type-matchers/generated/reflect-config.json";
+
+  public static final String PROXY_CONFIG =
+      "META-INF/native-image/iterator-type-matchers/generated/proxy-config.json";
+
+  static final String TRIGGER = "iterator.test.matchers.type.annotation.GenerateAnnotationMaps";
+
+  private static final String PACKAGE = "iterator.test.matchers.type.annotation";
+
+  // renders annotation values, defaults included, as java expressions of the member's type
+  private final class LiteralWriter extends SimpleAnnotationValueVisitor9<String, TypeMirror> {
+
+    @Override
+    protected String defaultAction(Object value, TypeMirror type) {
+      return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    @Override
+    public String visitAnnotation(AnnotationMirror mirror, TypeMirror type) {
+      StringJoiner names = new StringJoiner(", ", "new String[] {", "}");
+      StringJoiner values = new StringJoiner(", ", "new Object[] {", "}");
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> member :
+          mirror.getElementValues().entrySet()) {
+        names.add('"' + member.getKey().getSimpleName().toString() + '"');
+        values.add(member.getValue().accept(this, member.getKey().getReturnType()));
+      }
+      return String.format(
+          "AnnotationMapBuilder.annotation(%s.class, %s, %s)",
+          erasure(mirror.getAnnotationType()), names, values);
+    }
+
+    @Override
+    public String visitArray(List<? extends AnnotationValue> values, TypeMirror type) {
+      TypeMirror component = ((ArrayType) type).getComponentType();
+      StringJoiner joiner = new StringJoiner(", ", "new " + wildcarded(component) + "[] {", "}");
+      values.forEach(value -> joiner.add(value.accept(this, component)));
+      return joiner.toString();
+    }
+
+    @Override
+    public String visitEnumConstant(VariableElement constant, TypeMirror type) {
+      return erasure(constant.asType()) + "." + constant.getSimpleName();
+    }
+
+    @Override
+    public String visitType(TypeMirror value, TypeMirror type) {
+      return erasure(value) + ".class";
+    }
+  }
+
+  private final Set<String> generated = new TreeSet<>();
+
+  // binary names, as the native-image configuration expects them
+  private final Set<String> annotationTypes = new TreeSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    TypeElement trigger = processingEnv.getElementUtils().getTypeElement(TRIGGER);
+    if (trigger != null) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(trigger)) {
+        String pkg = packageOf(element);
+        for (TypeElement type : requestedTypes(element)) generate(element, pkg, type);
+      }
+    }
+    if (roundEnv.processingOver() && !generated.isEmpty()) {
+      merge();
+      write(SERVICE, new ArrayList<>(generated));
+      write(REFLECT_CONFIG, reflectConfig());
+      write(PROXY_CONFIG, proxyConfig());
+    }
+    return false;
+  }
+
+  private static boolean isAccessible(TypeElement type, String pkg, String typePkg) {
+    for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      Set<Modifier> modifiers = e.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE)) return false;
+      if (!modifiers.contains(Modifier.PUBLIC) && !pkg.equals(typePkg)) return false;
+    }
+    return true;
+  }
+
+  // the varargs of a setter are only heap polluting when the component type has real arguments
+  private static boolean isReifiable(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) return true;
+    for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+      if (argument.getKind() != TypeKind.WILDCARD) return false;
+      WildcardType wildcard = (WildcardType) argument;
+      if (wildcard.getExtendsBound() != null || wildcard.getSuperBound() != null) return false;
+    }
+    return true;
+  }
+
+  private static List<String> jsonArray(List<String> lines) {
+    String last = lines.get(lines.size() - 1);
+    lines.set(lines.size() - 1, last.substring(0, last.length() - 1));
+    lines.add("]");
+    return lines;
+  }
+
+  private static String simpleName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    for (Element e = type.getEnclosingElement(); e instanceof TypeElement; ) {
+      name.insert(0, e.getSimpleName());
+      e = e.getEnclosingElement();
+    }
+    return name.append("Map").toString();
+  }
+
+  private List<TypeElement> requestedTypes(Element element) {
+    List<TypeElement> types = new ArrayList<>();
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (!erasure(mirror.getAnnotationType()).equals(TRIGGER)) continue;
+      for (AnnotationValue value : mirror.getElementValues().values()) {
+        for (Object type : (List<?>) value.getValue()) {
+          TypeMirror mirrorType = (TypeMirror) ((AnnotationValue) type).getValue();
+          types.add((TypeElement) processingEnv.getTypeUtils().asElement(mirrorType));
+        }
+      }
+    }
+    return types;
+  }
+
+  // a generic array creation is only legal over unbounded wildcards, as in new Class<?>[] {}
+  private String wildcarded(TypeMirror type) {
+    String erasure = erasure(type);
+    if (type.getKind() != TypeKind.DECLARED) return erasure;
+    int parameters = ((TypeElement) ((DeclaredType) type).asElement()).getTypeParameters().size();
+    if (parameters == 0) return erasure;
+    return erasure + "<" + String.join(", ", Collections.nCopies(parameters, "?")) + ">";
+  }
+
+  private String erasure(TypeMirror type) {
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  private void generate(Element origin, String pkg, TypeElement type) {
+    String name = simpleName(type);
+    String className = pkg.isEmpty() ? name : pkg + "." + name;
+    if (generated.contains(className)) return;
+    if (type.getKind() != ElementKind.ANNOTATION_TYPE
+        || !isAccessible(type, pkg, packageOf(type))) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.ERROR,
+              String.format("Cannot generate a map for %s in package '%s'", type, pkg),
+              origin);
+      return;
+    }
+    generated.add(className);
+    annotationTypes.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+    List<ExecutableElement> members =
+        new ArrayList<>(ElementFilter.methodsIn(type.getEnclosedElements()));
+    // schema order, so generated indices are the runtime member indices
+    members.sort((a, b) -> a.getSimpleName().toString().compareTo(b.getSimpleName().toString()));
+    try {
+      FileObject file = processingEnv.getFiler().createSourceFile(className, origin);
+      try (Writer writer = new OutputStreamWriter(file.openOutputStream(), UTF_8)) {
+        writer.write(source(pkg, name, type.getQualifiedName().toString(), members));
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Cannot write " + className + ": " + e, origin);
+    }
+    // nested annotations need metadata too, or reading them would fall back to reflection
+    for (ExecutableElement member : members) {
+      TypeElement nested = annotationType(member.getReturnType());
+      if (nested != null && isAccessible(nested, pkg, packageOf(nested)))
+        generate(origin, pkg, nested);
+    }
+  }
+
+  private TypeElement annotationType(TypeMirror type) {
+    if (type.getKind() == TypeKind.ARRAY)
+      return annotationType(((ArrayType) type).getComponentType());
+    if (type.getKind() != TypeKind.DECLARED) return null;
+    Element element = ((DeclaredType) type).asElement();
+    return element.getKind() == ElementKind.ANNOTATION_TYPE ? (TypeElement) element : null;
+  }
+
+  private String packageOf(Element element) {
+    return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+  }
+
+  private String source(
+      String pkg, String name, String annotationType, List<ExecutableElement> members) {
+    StringBuilder src = new StringBuilder();
+    if (!pkg.isEmpty()) src.append("package ").append(pkg).append(";\n\n");
+    src.append("import ").append(PACKAGE).append(".AnnotationMapBuilder;\n");
+    src.append("import ").append(PACKAGE).append(".AnnotationMetadata;\n\n");
+    src.append("// generated by ").append(getClass().getName()).append(", do not edit\n");
+    src.append(
+        String.format(
+            "public final class %s implements AnnotationMetadata<%s> {\n\n", name, annotationType));
+    src.append(
+        String.format(
+            "  public static final class Builder extends AnnotationMapBuilder<%s, Builder> {\n\n",
+            annotationType));
+    src.append(
+        String.format("    private Builder() {\n      super(%s.class);\n    }\n", annotationType));
+    for (int i = 0; i < members.size(); i++) src.append(setter(members.get(i), i));
+    src.append("  }\n\n");
+    src.append("  public static Builder builder() {\n    return new Builder();\n  }\n\n");
+    src.append(
+        String.format(
+            "  @Override\n  public Class<%1$s> annotationType() {\n    return %1$s.class;\n  }\n\n",
+            annotationType));
+    StringJoiner defaults = new StringJoiner(", ", "new Object[] {", "}");
+    StringJoiner names = new StringJoiner(", ", "new String[] {", "}");
+    StringJoiner types = new StringJoiner(", ", "new Class<?>[] {", "}");
+    StringBuilder cases = new StringBuilder();
+    LiteralWriter literals = new LiteralWriter();
+    for (int i = 0; i < members.size(); i++) {
+      ExecutableElement member = members.get(i);
+      AnnotationValue def = member.getDefaultValue();
+      defaults.add(def != null ? def.accept(literals, member.getReturnType()) : "null");
+      names.add('"' + member.getSimpleName().toString() + '"');
+      types.add(erasure(member.getReturnType()) + ".class");
+      cases.append(
+          String.format(
+              "      case %d:\n        return annotation.%s();\n", i, member.getSimpleName()));
+    }
+    src.append(
+        String.format(
+            "  @Override\n  public Object[] memberDefaults() {\n    return %s;\n  }\n\n",
+            defaults));
+    src.append(
+        String.format(
+            "  @Override\n  public String[] memberNames() {\n    return %s;\n  }\n\n", names));
+    src.append(
+        String.format(
+            "  @Override\n  public Class<?>[] memberTypes() {\n    return %s;\n  }\n\n", types));
+    src.append(
+        String.format(
+            "  @Override\n  public Object memberValue(%s annotation, int index) {\n",
+            annotationType));
+    src.append("    switch (index) {\n").append(cases);
+    src.append("      default:\n        throw new IndexOutOfBoundsException(index);\n");
+    src.append("    }\n  }\n}\n");
+    return src.toString();
+  }
+
+  private String setter(ExecutableElement member, int index) {
+    String name = member.getSimpleName().toString();
+    TypeMirror type = member.getReturnType();
+    String parameter = type.toString();
+    String modifiers = "public";
+    if (type.getKind() == TypeKind.ARRAY) {
+      TypeMirror component = ((ArrayType) type).getComponentType();
+      parameter = component + "...";
+      if (!isReifiable(component))
+        modifiers = "@SafeVarargs\n    @SuppressWarnings(\"varargs\")\n    public final";
+    }
+    return String.format(
+        "\n    %s Builder %s(%s %s) {\n      return member(%d, %s);\n    }\n",
+        modifiers, name, parameter, name, index, name);
+  }
+
+  // an incremental compile generates only the maps it reprocesses, so maps registered by the last
+  // build are kept, with their annotation types, unless they no longer exist
+  private void merge() {
+    List<String> lines;
+    try {
+      FileObject file =
+          processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE);
+      try (BufferedReader reader =
+          new BufferedReader(new InputStreamReader(file.openInputStream(), UTF_8))) {
+        lines = reader.lines().collect(Collectors.toList());
+      }
+    } catch (IOException e) {
+      // no earlier registration, this is a full build
+      return;
+    }
+    Elements elements = processingEnv.getElementUtils();
+    for (String className : lines) {
+      if (className.isEmpty() || generated.contains(className)) continue;
+      TypeElement map = elements.getTypeElement(className);
+      if (map == null) continue;
+      for (TypeMirror implemented : map.getInterfaces()) {
+        if (!erasure(implemented).equals(PACKAGE + ".AnnotationMetadata")) continue;
+        TypeMirror annotationType = ((DeclaredType) implemented).getTypeArguments().get(0);
+        TypeElement type = (TypeElement) processingEnv.getTypeUtils().asElement(annotationType);
+        generated.add(className);
+        annotationTypes.add(elements.getBinaryName(type).toString());
+      }
+    }
+  }
+
+  private List<String> proxyConfig() {
+    List<String> lines = new ArrayList<>();
+    lines.add("[");
+    for (String type : annotationTypes)
+      lines.add(String.format("  {\"interfaces\": [\"%s\"]},", type));
+    return jsonArray(lines);
+  }
+
+  private List<String> reflectConfig() {
+    List<String> lines = new ArrayList<>();
+    lines.add("[");
+    for (String type : annotationTypes)
+      lines.add(String.format("  {\"name\": \"%s\", \"allDeclaredMethods\": true},", type));
+    for (String className : generated)
+      lines.add(
+          String.format(
+              "  {\"name\": \"%s\", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]},",
+              className));
+    return jsonArray(lines);
+  }
+
+  private void write(String resource, List<String> lines) {
+    try {
+      FileObject file =
+          processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", resource);
+      try (Writer writer = new OutputStreamWriter(file.openOutputStream(), UTF_8)) {
+        for (String line : lines) {
+          writer.write(line);
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Cannot write " + resource + ": " + e);
+    }
+  }
+}
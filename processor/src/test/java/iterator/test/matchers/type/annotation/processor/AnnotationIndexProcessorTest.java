@@ -0,0 +1,160 @@
+package iterator.test.matchers.type.annotation.processor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnnotationIndexProcessorTest {
+
+  private static final String SOURCE =
+      String.join(
+          "\n",
+          "package sample;",
+          "import java.lang.annotation.*;",
+          "@Retention(RetentionPolicy.RUNTIME) @interface Tag {",
+          "  String value() default \"\";",
+          "  int[] numbers() default {};",
+          "  Class<?> type() default Object.class;",
+          "  ElementType kind() default ElementType.TYPE;",
+          "  Inner inner() default @Inner;",
+          "}",
+          "@Retention(RetentionPolicy.RUNTIME) @interface Inner { char value() default 'a'; }",
+          "@interface Invisible {}",
+          "@Tag(value = \"a b,c\", numbers = {1, 2}, type = String[].class, kind = ElementType.FIELD,"
+              + " inner = @Inner('z'))",
+          "@Invisible",
+          "public class Sample {",
+          "  @Tag String annotated;",
+          "  String plain;",
+          "  static class Nested {}",
+          "}");
+
+  private static class Source extends SimpleJavaFileObject {
+
+    private final String content;
+
+    private Source(String path, String content) {
+      super(URI.create("string:///" + path), JavaFileObject.Kind.SOURCE);
+      this.content = content;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+
+  private static boolean compile(Path dir, Source source) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            null,
+            Arrays.asList("-d", dir.toString(), "-cp", dir.toString()),
+            null,
+            Arrays.asList(source));
+    task.setProcessors(Arrays.asList(new AnnotationIndexProcessor()));
+    return task.call();
+  }
+
+  @Test
+  void shouldIndexRuntimeAnnotationsOfEveryCompiledClass(@TempDir Path dir) throws Exception {
+    // when
+    boolean compiled = compile(dir, new Source("sample/Sample.java", SOURCE));
+    // then
+    assertThat(compiled, is(true));
+    List<String> actual = Files.readAllLines(dir.resolve(AnnotationIndexProcessor.RESOURCE), UTF_8);
+    assertThat(
+        actual,
+        contains(
+            "# annotation index 1",
+            "sample.Inner",
+            "sample.Inner\ttype\t@java.lang.annotation.Retention(value=RUNTIME)",
+            "sample.Invisible",
+            "sample.Sample",
+            "sample.Sample\ttype\t@sample.Tag(value=a+b%2Cc,numbers={1,2},type=java.lang.String[],kind=FIELD,inner=@sample.Inner(value=z))",
+            "sample.Sample\tfield annotated\t@sample.Tag()",
+            "sample.Sample$Nested",
+            "sample.Tag",
+            "sample.Tag\ttype\t@java.lang.annotation.Retention(value=RUNTIME)"));
+  }
+
+  @Test
+  void shouldListRuntimeAnnotationTypesUsedAnywhereInCompiledClasses(@TempDir Path dir)
+      throws Exception {
+    // given
+    Source source =
+        new Source(
+            "sample/Used.java",
+            String.join(
+                "\n",
+                "package sample;",
+                "import java.lang.annotation.*;",
+                "@Retention(RetentionPolicy.RUNTIME) @Target(ElementType.TYPE_USE) @interface Use {}",
+                "@Retention(RetentionPolicy.RUNTIME) @interface Param {}",
+                "class Used {",
+                "  java.util.List<@Use String> names;",
+                "  void call(@Param int value) {}",
+                "}"));
+    // when
+    boolean compiled = compile(dir, source);
+    // then
+    assertThat(compiled, is(true));
+    List<String> actual =
+        Files.readAllLines(dir.resolve(AnnotationIndexProcessor.TYPES_RESOURCE), UTF_8);
+    assertThat(
+        actual,
+        contains(
+            "java.lang.annotation.Retention",
+            "java.lang.annotation.Target",
+            "sample.Param",
+            "sample.Use"));
+  }
+
+  @Test
+  void shouldKeepListedAnnotationTypesGivenIncrementalCompile(@TempDir Path dir) throws Exception {
+    // given
+    assertThat(compile(dir, new Source("sample/Sample.java", SOURCE)), is(true));
+    // when
+    boolean compiled =
+        compile(dir, new Source("sample/Other.java", "package sample; class Other {}"));
+    // then
+    assertThat(compiled, is(true));
+    List<String> actual =
+        Files.readAllLines(dir.resolve(AnnotationIndexProcessor.TYPES_RESOURCE), UTF_8);
+    assertThat(actual, hasItems("java.lang.annotation.Retention", "sample.Tag"));
+  }
+
+  @Test
+  void shouldKeepExistingClassesGivenIncrementalCompile(@TempDir Path dir) throws Exception {
+    // given
+    assertThat(compile(dir, new Source("sample/Sample.java", SOURCE)), is(true));
+    Path index = dir.resolve(AnnotationIndexProcessor.RESOURCE);
+    Files.write(index, Arrays.asList("gone.Gone", "gone.Gone\ttype\t@sample.Tag()"), UTF_8, APPEND);
+    // when
+    boolean compiled =
+        compile(dir, new Source("sample/Other.java", "package sample; @Tag class Other {}"));
+    // then
+    assertThat(compiled, is(true));
+    List<String> actual = Files.readAllLines(index, UTF_8);
+    assertThat(actual, hasItems("sample.Other\ttype\t@sample.Tag()", "sample.Sample$Nested"));
+    assertThat(actual, hasItem(startsWith("sample.Sample\ttype\t@sample.Tag(")));
+    assertThat(actual, not(hasItem(startsWith("gone.Gone"))));
+  }
+}
@@ -0,0 +1,213 @@
+package iterator.test.matchers.type.annotation.processor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import iterator.test.matchers.type.annotation.AnnotationMap;
+import iterator.test.matchers.type.annotation.AnnotationMapBuilder;
+import iterator.test.matchers.type.annotation.AnnotationMetadata;
+
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnnotationMapBuilderProcessorTest {
+
+  private static final String TAG =
+      String.join(
+          "\n",
+          "package sample;",
+          "import java.lang.annotation.*;",
+          "@Retention(RetentionPolicy.RUNTIME) public @interface Tag {",
+          "  String value();",
+          "  int[] numbers() default {1, 2};",
+          "  Class<?>[] types() default {Object.class};",
+          "  ElementType kind() default ElementType.TYPE;",
+          "  Inner inner() default @Inner('z');",
+          "  Inner[] inners() default {@Inner, @Inner('y')};",
+          "  long big() default 5L;",
+          "}");
+
+  private static final String INNER =
+      String.join(
+          "\n",
+          "package sample;",
+          "import java.lang.annotation.*;",
+          "@Retention(RetentionPolicy.RUNTIME) public @interface Inner { char value() default 'a'; }");
+
+  private static final String SAMPLE =
+      String.join(
+          "\n",
+          "package sample;",
+          "import iterator.test.matchers.type.annotation.*;",
+          "@GenerateAnnotationMaps(Tag.class)",
+          "@Tag(\"x\")",
+          "public class Sample {",
+          "  public static AnnotationMap<Tag> built() {",
+          "    return TagMap.builder().value(\"x\").build();",
+          "  }",
+          "  public static AnnotationMap<Tag> changed() {",
+          "    return TagMap.builder().value(\"x\").numbers(3).build();",
+          "  }",
+          "}");
+
+  private static class Source extends SimpleJavaFileObject {
+
+    private final String content;
+
+    private Source(String name, String content) {
+      super(URI.create("string:///sample/" + name + ".java"), JavaFileObject.Kind.SOURCE);
+      this.content = content;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+
+  private static boolean compile(
+      Path dir, DiagnosticCollector<JavaFileObject> diagnostics, String sample) throws Exception {
+    return compile(
+        dir,
+        diagnostics,
+        new Source("Tag", TAG),
+        new Source("Inner", INNER),
+        new Source("Sample", sample));
+  }
+
+  // classes already compiled to dir are on the class path, as in an incremental build
+  private static boolean compile(
+      Path dir, DiagnosticCollector<JavaFileObject> diagnostics, Source... sources)
+      throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    Path classes =
+        Paths.get(
+            AnnotationMapBuilder.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            diagnostics,
+            Arrays.asList("-d", dir.toString(), "-classpath", classes + File.pathSeparator + dir),
+            null,
+            Arrays.asList(sources));
+    task.setProcessors(Arrays.asList(new AnnotationMapBuilderProcessor()));
+    return task.call();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldGenerateBuildersEqualToReflectiveMaps(@TempDir Path dir) throws Exception {
+    // given
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    // when
+    boolean compiled = compile(dir, diagnostics, SAMPLE);
+    // then
+    assertThat(diagnostics.getDiagnostics().toString(), compiled, is(true));
+    List<String> services =
+        Files.readAllLines(dir.resolve(AnnotationMapBuilderProcessor.SERVICE), UTF_8);
+    assertThat(services, contains("sample.InnerMap", "sample.TagMap"));
+    try (URLClassLoader loader =
+        new URLClassLoader(new URL[] {dir.toUri().toURL()}, getClass().getClassLoader())) {
+      Class<?> sample = loader.loadClass("sample.Sample");
+      Class<Annotation> tag = (Class<Annotation>) loader.loadClass("sample.Tag");
+      AnnotationMap<Annotation> expected = AnnotationMap.of(sample.getAnnotation(tag));
+      assertThat(sample.getMethod("built").invoke(null), is(equalTo(expected)));
+      assertThat(sample.getMethod("changed").invoke(null), is(not(equalTo(expected))));
+      AnnotationMetadata<?> metadata =
+          (AnnotationMetadata<?>) loader.loadClass("sample.TagMap").getConstructor().newInstance();
+      assertThat(
+          metadata.memberNames(),
+          is(arrayContaining("big", "inner", "inners", "kind", "numbers", "types", "value")));
+    }
+  }
+
+  @Test
+  void shouldWriteNativeImageConfigurationForGeneratedMaps(@TempDir Path dir) throws Exception {
+    // given
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    // when
+    boolean compiled = compile(dir, diagnostics, SAMPLE);
+    // then
+    assertThat(diagnostics.getDiagnostics().toString(), compiled, is(true));
+    assertThat(
+        Files.readAllLines(dir.resolve(AnnotationMapBuilderProcessor.REFLECT_CONFIG), UTF_8),
+        contains(
+            "[",
+            "  {\"name\": \"sample.Inner\", \"allDeclaredMethods\": true},",
+            "  {\"name\": \"sample.Tag\", \"allDeclaredMethods\": true},",
+            "  {\"name\": \"sample.InnerMap\", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]},",
+            "  {\"name\": \"sample.TagMap\", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]}",
+            "]"));
+    assertThat(
+        Files.readAllLines(dir.resolve(AnnotationMapBuilderProcessor.PROXY_CONFIG), UTF_8),
+        contains(
+            "[",
+            "  {\"interfaces\": [\"sample.Inner\"]},",
+            "  {\"interfaces\": [\"sample.Tag\"]}",
+            "]"));
+  }
+
+  @Test
+  void shouldKeepRegisteredMapsGivenIncrementalCompile(@TempDir Path dir) throws Exception {
+    // given
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    assertThat(compile(dir, diagnostics, SAMPLE), is(true));
+    Source flag =
+        new Source(
+            "Flag",
+            String.join(
+                "\n",
+                "package sample;",
+                "import java.lang.annotation.*;",
+                "import iterator.test.matchers.type.annotation.*;",
+                "@Retention(RetentionPolicy.RUNTIME) public @interface Flag {}",
+                "@GenerateAnnotationMaps(Flag.class) class Flagged {}"));
+    // when
+    boolean compiled = compile(dir, diagnostics, flag);
+    // then
+    assertThat(diagnostics.getDiagnostics().toString(), compiled, is(true));
+    assertThat(
+        Files.readAllLines(dir.resolve(AnnotationMapBuilderProcessor.SERVICE), UTF_8),
+        contains("sample.FlagMap", "sample.InnerMap", "sample.TagMap"));
+    assertThat(
+        Files.readAllLines(dir.resolve(AnnotationMapBuilderProcessor.PROXY_CONFIG), UTF_8),
+        hasItems("  {\"interfaces\": [\"sample.Flag\"]},", "  {\"interfaces\": [\"sample.Tag\"]}"));
+  }
+
+  @Test
+  void shouldFailToCompileMisspeltMembers(@TempDir Path dir) throws Exception {
+    // given
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    String misspelt = SAMPLE.replace(".value(\"x\").build()", ".valeu(\"x\").build()");
+    // when
+    boolean compiled = compile(dir, diagnostics, misspelt);
+    // then
+    assertThat(compiled, is(false));
+    assertThat(
+        diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+            .map(d -> d.getMessage(null))
+            .anyMatch(message -> message.contains("valeu")),
+        is(true));
+  }
+}
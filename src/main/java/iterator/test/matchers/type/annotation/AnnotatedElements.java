@@ -0,0 +1,363 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Streams the classes under directories and jars, each followed by its declared fields, loading
+// them only as they are reached. Nothing is listed up front: a directory is listed one package at
+// a time and a jar is read entry by entry, unless a parallel stream asks to split them, when roots
+// split first, then a directory into its own package and its subdirectories, then a jar into its
+// packages. The stream holds jars open until it is closed, like Files.walk.
+public final class AnnotatedElements {
+
+  private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL;
+
+  private static final class ElementSpliterator implements Spliterator<AnnotatedElement> {
+
+    private final Scan scan;
+
+    private final Deque<Unit> pending;
+
+    private Names current;
+
+    private Field[] fields;
+
+    private int nextField;
+
+    private ElementSpliterator(Scan scan, Deque<Unit> pending) {
+      this.scan = scan;
+      this.pending = pending;
+    }
+
+    @Override
+    public int characteristics() {
+      return CHARACTERISTICS;
+    }
+
+    // a rough hint for splitting: the fields of classes not yet loaded are not counted
+    @Override
+    public long estimateSize() {
+      long size = fieldsRemaining();
+      if (current != null) size = add(size, current.estimate());
+      for (Unit unit : pending) size = add(size, unit.estimate());
+      return size;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super AnnotatedElement> action) {
+      while (true) {
+        if (fieldsRemaining() > 0) {
+          action.accept(fields[nextField++]);
+          return true;
+        }
+        if (current != null && current.names.hasNext()) {
+          Class<?> type = load(current.next());
+          if (type == null) continue;
+          fields = declaredFields(type);
+          nextField = 0;
+          action.accept(type);
+          return true;
+        }
+        current = null;
+        if (pending.isEmpty()) return false;
+        Unit unit = pending.removeFirst();
+        current = unit.names();
+        if (current == null) addFirst(unit.split());
+      }
+    }
+
+    // the prefix takes the class in progress and the first half of the units after it
+    @Override
+    public Spliterator<AnnotatedElement> trySplit() {
+      boolean started = current != null || fieldsRemaining() > 0;
+      while (!started && pending.size() == 1) {
+        List<Unit> units = pending.peekFirst().split();
+        if (units == null) break;
+        pending.removeFirst();
+        addFirst(units);
+      }
+      int units = pending.size() + (started ? 1 : 0);
+      if (units < 2) return null;
+      Deque<Unit> prefix = new ArrayDeque<>();
+      for (int i = started ? 1 : 0; i < units / 2; i++) prefix.addLast(pending.removeFirst());
+      ElementSpliterator split = new ElementSpliterator(scan, prefix);
+      split.current = current;
+      split.fields = fields;
+      split.nextField = nextField;
+      current = null;
+      fields = null;
+      return split;
+    }
+
+    private void addFirst(List<Unit> units) {
+      for (int i = units.size() - 1; i >= 0; i--) pending.addFirst(units.get(i));
+    }
+
+    private int fieldsRemaining() {
+      return fields == null ? 0 : fields.length - nextField;
+    }
+
+    private Class<?> load(String name) {
+      try {
+        return Class.forName(name, false, scan.loader);
+      } catch (ClassNotFoundException | LinkageError e) {
+        // a class that cannot be loaded has no annotations to offer
+        return null;
+      }
+    }
+
+    private static long add(long size, long estimate) {
+      long sum = size + estimate;
+      return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static Field[] declaredFields(Class<?> type) {
+      try {
+        return type.getDeclaredFields();
+      } catch (LinkageError e) {
+        // the class itself loaded, but some field type did not
+        return new Field[0];
+      }
+    }
+  }
+
+  // the root as a whole, read entry by entry until a split needs it by package
+  private static final class Jar implements Unit {
+
+    private final Scan scan;
+
+    private final Path path;
+
+    private long classes = -1;
+
+    private Jar(Scan scan, Path path) {
+      this.scan = scan;
+      this.path = path;
+    }
+
+    // counted over the central directory the jar file already holds, without reading entries
+    @Override
+    public long estimate() {
+      if (classes < 0)
+        classes =
+            scan.jar(path).stream().map(JarEntry::getName).filter(ClassRoots::isClass).count();
+      return classes;
+    }
+
+    @Override
+    public Names names() {
+      Iterator<String> names =
+          scan.jar(path).stream()
+              .map(JarEntry::getName)
+              .filter(ClassRoots::isClass)
+              .map(ClassRoots::className)
+              .iterator();
+      return new Names(names, estimate());
+    }
+
+    @Override
+    public List<Unit> split() {
+      Map<String, List<String>> packages = new LinkedHashMap<>();
+      scan.jar(path).stream()
+          .map(JarEntry::getName)
+          .filter(ClassRoots::isClass)
+          .map(ClassRoots::className)
+          .forEach(
+              name ->
+                  packages.computeIfAbsent(packageOf(name), key -> new ArrayList<>()).add(name));
+      List<Unit> units = new ArrayList<>();
+      packages.values().forEach(names -> units.add(new Names(names.iterator(), names.size())));
+      return units;
+    }
+  }
+
+  // class names ready to load, with an upper bound on how many remain
+  private static final class Names implements Unit {
+
+    private final Iterator<String> names;
+
+    private long remaining;
+
+    private Names(Iterator<String> names, long remaining) {
+      this.names = names;
+      this.remaining = remaining;
+    }
+
+    @Override
+    public long estimate() {
+      return remaining;
+    }
+
+    @Override
+    public Names names() {
+      return this;
+    }
+
+    @Override
+    public List<Unit> split() {
+      return null;
+    }
+
+    private String next() {
+      if (remaining > 0) remaining--;
+      return names.next();
+    }
+  }
+
+  // what the spliterators of one stream share, so closing the stream closes every jar they opened
+  private static final class Scan {
+
+    private final ClassLoader loader;
+
+    private final Map<Path, JarFile> jars = new ConcurrentHashMap<>();
+
+    private Scan(ClassLoader loader) {
+      this.loader = loader;
+    }
+
+    private void close() {
+      IOException failure = null;
+      for (JarFile jar : jars.values()) {
+        try {
+          jar.close();
+        } catch (IOException e) {
+          if (failure == null) failure = e;
+        }
+      }
+      jars.clear();
+      if (failure != null) throw new UncheckedIOException(failure);
+    }
+
+    private JarFile jar(Path path) {
+      return jars.computeIfAbsent(
+          path,
+          key -> {
+            try {
+              return new JarFile(key.toFile());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    }
+  }
+
+  // a directory and everything under it, listed a level at a time
+  private static final class Tree implements Unit {
+
+    private final Path root;
+
+    private final Path directory;
+
+    private Tree(Path root, Path directory) {
+      this.root = root;
+      this.directory = directory;
+    }
+
+    // unknown until listed, which is as good as unbounded to a fork join pool deciding to split
+    @Override
+    public long estimate() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public Names names() {
+      return null;
+    }
+
+    @Override
+    public List<Unit> split() {
+      List<String> names = new ArrayList<>();
+      List<Path> directories = new ArrayList<>();
+      try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+        for (Path path : paths) {
+          if (Files.isDirectory(path)) {
+            directories.add(path);
+          } else {
+            String entry = ClassRoots.entryName(root, path);
+            if (ClassRoots.isClass(entry)) names.add(ClassRoots.className(entry));
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      Collections.sort(names);
+      Collections.sort(directories);
+      List<Unit> units = new ArrayList<>();
+      if (!names.isEmpty()) units.add(new Names(names.iterator(), names.size()));
+      directories.forEach(path -> units.add(new Tree(root, path)));
+      return units;
+    }
+  }
+
+  // part of a root, either ready to load or to be split into smaller parts first
+  private interface Unit {
+
+    // classes still to come, leaving out the fields each brings once loaded, so only a rough hint
+    long estimate();
+
+    // null when the unit must be split before its names are known
+    Names names();
+
+    // null when the unit cannot be split any further
+    List<Unit> split();
+  }
+
+  public static <A extends Annotation> Stream<A> annotations(
+      Class<A> annotationType, ClassLoader loader, Path... roots) {
+    return scan(loader, roots)
+        .map(element -> element.getDeclaredAnnotation(annotationType))
+        .filter(Objects::nonNull);
+  }
+
+  public static Stream<AnnotatedElement> scan(ClassLoader loader, Path... roots) {
+    Scan scan = new Scan(loader);
+    Deque<Unit> units = new ArrayDeque<>();
+    for (Path root : roots)
+      units.addLast(Files.isDirectory(root) ? new Tree(root, root) : new Jar(scan, root));
+    return StreamSupport.stream(new ElementSpliterator(scan, units), false).onClose(scan::close);
+  }
+
+  private static String packageOf(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(0, dot);
+  }
+
+  private AnnotatedElements() {}
+}
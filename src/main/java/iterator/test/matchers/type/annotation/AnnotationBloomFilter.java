@@ -0,0 +1,225 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+public final class AnnotationBloomFilter {
+
+  private static final class Cached {
+
+    private final Key key;
+
+    private final AnnotationBloomFilter filter;
+
+    private Cached(Key key, AnnotationBloomFilter filter) {
+      this.key = key;
+      this.filter = filter;
+    }
+  }
+
+  private static final class Key {
+
+    private final Path jar;
+
+    private final FileTime modified;
+
+    private final long size;
+
+    private Key(Path jar) throws IOException {
+      this.jar = jar.toAbsolutePath().normalize();
+      this.modified = Files.getLastModifiedTime(jar);
+      this.size = Files.size(jar);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) return false;
+      Key other = (Key) obj;
+      return jar.equals(other.jar) && modified.equals(other.modified) && size == other.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(jar, modified, size);
+    }
+  }
+
+  // annotation types the annotation processor saw on the jar's classes, one name per line
+  public static final String RESOURCE = "META-INF/iterator/annotation-types";
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  private static final int HASHES = 7;
+
+  // one filter per jar path, replaced rather than added to when the jar changes
+  private static final Map<Path, Cached> JARS = new ConcurrentHashMap<>();
+
+  // summarises the types referenced by the classes of a jar, cached until the jar changes; unless
+  // the jar lists its annotation types or a scan has seen it, every class in it is read first
+  public static AnnotationBloomFilter forJar(Path jar) {
+    AnnotationBloomFilter filter = cached(jar);
+    if (filter != null) return filter;
+    filter = of(jar);
+    remember(jar, filter);
+    return filter;
+  }
+
+  public static AnnotationBloomFilter of(Path jar) {
+    Set<String> types = new HashSet<>();
+    try (JarFile file = new JarFile(jar.toFile())) {
+      Enumeration<JarEntry> entries = file.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        if (!entry.getName().endsWith(CLASS_SUFFIX)) continue;
+        try (InputStream in = file.getInputStream(entry)) {
+          types.addAll(ClassFile.read(in).getReferencedTypes());
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return of(types);
+  }
+
+  public static AnnotationBloomFilter of(Set<String> typeNames) {
+    // about ten bits per entry for a false positive rate near one percent
+    int words = Math.max(1, (typeNames.size() * 10 + 63) >>> 6);
+    AnnotationBloomFilter filter = new AnnotationBloomFilter(new long[words]);
+    typeNames.forEach(filter::add);
+    return filter;
+  }
+
+  public static AnnotationBloomFilter readFrom(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    long[] bits = new long[data.readInt()];
+    for (int i = 0; i < bits.length; i++) bits[i] = data.readLong();
+    return new AnnotationBloomFilter(bits);
+  }
+
+  // null until the jar lists its annotation types or a scan has summarised it since it last changed
+  static AnnotationBloomFilter cached(Path jar) {
+    Key key = key(jar);
+    Metrics.accessed(AnnotationMetrics.ANNOTATION_BLOOM_FILTER, null, key.jar);
+    Cached cached =
+        JARS.compute(
+            key.jar,
+            (path, previous) -> {
+              if (previous != null && previous.key.equals(key)) return previous;
+              Metrics.missed(AnnotationMetrics.ANNOTATION_BLOOM_FILTER, null, path);
+              AnnotationBloomFilter listed = listed(path);
+              return listed != null ? new Cached(key, listed) : null;
+            });
+    return cached != null ? cached.filter : null;
+  }
+
+  // for a scan that has read every class of the jar anyway
+  static void remember(Path jar, Set<String> typeNames) {
+    remember(jar, of(typeNames));
+  }
+
+  private static Key key(Path jar) {
+    try {
+      return new Key(jar);
+    } catch (IOException e) {
+      // a jar that has gone takes its filter with it
+      JARS.remove(jar.toAbsolutePath().normalize());
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static AnnotationBloomFilter listed(Path jar) {
+    try (JarFile file = new JarFile(jar.toFile())) {
+      JarEntry entry = file.getJarEntry(RESOURCE);
+      if (entry == null) return null;
+      try (BufferedReader reader =
+          new BufferedReader(new InputStreamReader(file.getInputStream(entry), UTF_8))) {
+        return of(reader.lines().filter(line -> !line.isEmpty()).collect(Collectors.toSet()));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void remember(Path jar, AnnotationBloomFilter filter) {
+    Key key = key(jar);
+    JARS.put(key.jar, new Cached(key, filter));
+  }
+
+  private final long[] bits;
+
+  private AnnotationBloomFilter(long[] bits) {
+    this.bits = bits;
+  }
+
+  public boolean mightContain(Class<? extends Annotation> annotationType) {
+    return mightContain(annotationType.getName());
+  }
+
+  public boolean mightContain(String typeName) {
+    long hash = Fingerprint.hash(typeName);
+    long step = Fingerprint.mix(hash);
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Math.floorMod(hash + i * step, (long) bits.length << 6);
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+    }
+    return true;
+  }
+
+  public void writeTo(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(bits.length);
+    for (long word : bits) data.writeLong(word);
+    data.flush();
+  }
+
+  boolean mightContainAny(Collection<String> typeNames) {
+    for (String typeName : typeNames) if (mightContain(typeName)) return true;
+    return false;
+  }
+
+  private void add(String typeName) {
+    long hash = Fingerprint.hash(typeName);
+    long step = Fingerprint.mix(hash);
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Math.floorMod(hash + i * step, (long) bits.length << 6);
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+}
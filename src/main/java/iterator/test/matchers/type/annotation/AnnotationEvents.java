@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// flight recorder events; begin, end and shouldCommit are intrinsics that do nothing unless a
+// recording has the event enabled, so only events over the threshold are ever populated
+final class AnnotationEvents {
+
+  @Name("iterator.AnnotationMapConstruction")
+  @Label("Annotation Map Construction")
+  @Description("Construction of an AnnotationMap from an annotation type or instance")
+  @Category({"Iterator", "Type Matchers"})
+  @Threshold("1 ms")
+  @StackTrace(false)
+  static final class MapConstruction extends Event {
+
+    @Label("Annotation Type")
+    Class<?> annotationType;
+
+    @Label("Factory")
+    String factory;
+
+    static MapConstruction start() {
+      MapConstruction event = new MapConstruction();
+      event.begin();
+      return event;
+    }
+
+    <A extends Annotation> AnnotationMap<A> completed(String factory, AnnotationMap<A> map) {
+      end();
+      if (shouldCommit()) {
+        this.annotationType = map.getAnnotationClass();
+        this.factory = factory;
+        commit();
+      }
+      return map;
+    }
+  }
+
+  @Name("iterator.AnnotationMatcherEvaluation")
+  @Label("Annotation Matcher Evaluation")
+  @Description("Evaluation of an annotation matcher against a class")
+  @Category({"Iterator", "Type Matchers"})
+  @Threshold("1 ms")
+  @StackTrace(false)
+  static final class MatcherEvaluation extends Event {
+
+    @Label("Annotation Type")
+    Class<?> annotationType;
+
+    @Label("Target")
+    Class<?> target;
+
+    @Label("Matched")
+    boolean matched;
+  }
+
+  @Name("iterator.AnnotationMismatchRendering")
+  @Label("Annotation Mismatch Rendering")
+  @Description("Rendering of the mismatch description of an annotation matcher")
+  @Category({"Iterator", "Type Matchers"})
+  @Threshold("1 ms")
+  @StackTrace(false)
+  static final class MismatchRendering extends Event {
+
+    @Label("Annotation Type")
+    Class<?> annotationType;
+
+    @Label("Target")
+    Class<?> target;
+  }
+
+  private AnnotationEvents() {}
+}
@@ -0,0 +1,314 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableSortedSet;
+import static org.apache.commons.lang3.ClassUtils.primitiveToWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.ClassUtils;
+
+// Reads the indexes written at compile time by iterator-type-matchers-processor. Each line names a
+// compiled class, optionally followed by an element ("type" or "field <name>") and one of its
+// runtime annotations as @binary.Name(member=value,...), where arrays are {a,b} and scalars are url
+// encoded. Only explicitly given members are listed, the rest take their defaults. Annotations
+// are decoded into maps on first request, so loading costs no more than reading the lines.
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class AnnotationIndex {
+
+  public static final String RESOURCE = "META-INF/iterator/annotation-index";
+
+  static final String HEADER = "# annotation index 1";
+
+  static final String TYPE = "type";
+
+  static final String FIELD = "field ";
+
+  private final class Parser {
+
+    private final String text;
+
+    private int pos;
+
+    private Parser(String text) {
+      this.text = text;
+    }
+
+    private AnnotationMap<?> annotation() {
+      expect('@');
+      Class<? extends Annotation> type = annotationType(token());
+      AnnotationSchema<?> schema = AnnotationSchema.of(type);
+      List<String> names = new ArrayList<>();
+      List<Object> values = new ArrayList<>();
+      expect('(');
+      if (!accept(')')) {
+        do {
+          String name = token();
+          int index = schema.indexOf(name);
+          if (index < 0) throw malformed(String.format("no member '%s' in %s", name, type));
+          expect('=');
+          names.add(name);
+          values.add(value(schema.getType(index)));
+        } while (accept(','));
+        expect(')');
+      }
+      return AnnotationMap.from((Class) type, names.toArray(new String[0]), values.toArray());
+    }
+
+    private boolean accept(char ch) {
+      if (pos < text.length() && text.charAt(pos) == ch) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char ch) {
+      if (!accept(ch)) throw malformed(String.format("expected '%s'", ch));
+    }
+
+    private IllegalArgumentException malformed(String problem) {
+      return new IllegalArgumentException(
+          String.format("Malformed annotation index entry at %d, %s: %s", pos, problem, text));
+    }
+
+    private Object scalar(Class<?> type, String token) {
+      if (type == String.class) return token;
+      if (type == boolean.class) return Boolean.valueOf(token);
+      if (type == byte.class) return Byte.valueOf(token);
+      if (type == char.class) return token.charAt(0);
+      if (type == short.class) return Short.valueOf(token);
+      if (type == int.class) return Integer.valueOf(token);
+      if (type == long.class) return Long.valueOf(token);
+      if (type == float.class) return Float.valueOf(token);
+      if (type == double.class) return Double.valueOf(token);
+      if (type.isEnum()) return Enum.valueOf((Class) type, token);
+      if (type == Class.class) return load(token);
+      throw malformed(String.format("unsupported member type %s", type));
+    }
+
+    private String token() {
+      int start = pos;
+      while (pos < text.length() && "(){},=".indexOf(text.charAt(pos)) < 0) pos++;
+      return text.substring(start, pos);
+    }
+
+    private Object value(Class<?> type) {
+      if (type.isAnnotation()) return annotation().toAnnotation();
+      if (!type.isArray()) return scalar(type, URLDecoder.decode(token(), UTF_8));
+      // maps hold primitive arrays boxed
+      Class<?> component = type.getComponentType();
+      List<Object> elements = new ArrayList<>();
+      expect('{');
+      if (!accept('}')) {
+        do elements.add(value(component));
+        while (accept(','));
+        expect('}');
+      }
+      Object array = Array.newInstance(primitiveToWrapper(component), elements.size());
+      for (int i = 0; i < elements.size(); i++) Array.set(array, i, elements.get(i));
+      return array;
+    }
+  }
+
+  public static AnnotationIndex load(ClassLoader loader) {
+    AnnotationIndex index = new AnnotationIndex(loader);
+    try {
+      Enumeration<URL> resources = loader.getResources(RESOURCE);
+      while (resources.hasMoreElements()) {
+        try (InputStream in = resources.nextElement().openStream()) {
+          index.add(in);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return index;
+  }
+
+  public static AnnotationIndex read(InputStream in, ClassLoader loader) throws IOException {
+    AnnotationIndex index = new AnnotationIndex(loader);
+    index.add(in);
+    return index;
+  }
+
+  // the format the processor writes, from a live annotation of any loader; every member is listed
+  // as there is no telling which were given explicitly
+  static String encode(Annotation annotation) {
+    Method[] members = annotation.annotationType().getDeclaredMethods();
+    Arrays.sort(members, Comparator.comparing(Method::getName));
+    StringJoiner joiner =
+        new StringJoiner(",", "@" + annotation.annotationType().getName() + "(", ")");
+    for (Method member : members) {
+      member.trySetAccessible();
+      try {
+        joiner.add(member.getName() + "=" + encodeValue(member.invoke(annotation)));
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException(
+            String.format("Cannot read member '%s' of %s", member.getName(), annotation), e);
+      }
+    }
+    return joiner.toString();
+  }
+
+  static AnnotationIndex of(ClassLoader loader, List<String> lines) {
+    return of(loader, lines, Collections.emptyList());
+  }
+
+  // for a scan, which also names the classes it could not read
+  static AnnotationIndex of(ClassLoader loader, List<String> lines, Collection<String> unloadable) {
+    AnnotationIndex index = new AnnotationIndex(loader);
+    lines.forEach(index::add);
+    index.unloadable.addAll(unloadable);
+    return index;
+  }
+
+  private static String encodeClass(Class<?> type) {
+    return type.isArray() ? encodeClass(type.getComponentType()) + "[]" : type.getName();
+  }
+
+  private static String encodeValue(Object value) {
+    if (value instanceof Annotation) return encode((Annotation) value);
+    if (value instanceof Enum) return ((Enum<?>) value).name();
+    if (value instanceof Class) return encodeClass((Class<?>) value);
+    if (!value.getClass().isArray()) return URLEncoder.encode(String.valueOf(value), UTF_8);
+    StringJoiner joiner = new StringJoiner(",", "{", "}");
+    for (int i = 0; i < Array.getLength(value); i++) joiner.add(encodeValue(Array.get(value, i)));
+    return joiner.toString();
+  }
+
+  private final ClassLoader loader;
+
+  // class name to element to annotation type name to encoded annotation
+  private final SortedMap<String, Map<String, Map<String, String>>> classes = new TreeMap<>();
+
+  private final Map<String, AnnotationMap<?>> decoded = new ConcurrentHashMap<>();
+
+  // classes a scan found but could not load or read the annotations of
+  private final SortedSet<String> unloadable = new TreeSet<>();
+
+  private AnnotationIndex(ClassLoader loader) {
+    this.loader = loader;
+  }
+
+  public SortedSet<String> getClassesAnnotatedWith(Class<? extends Annotation> annotationType) {
+    SortedSet<String> names = new TreeSet<>();
+    classes.forEach(
+        (name, elements) -> {
+          for (Map<String, String> annotations : elements.values()) {
+            if (annotations.containsKey(annotationType.getName())) names.add(name);
+          }
+        });
+    return names;
+  }
+
+  public SortedSet<String> getClassNames() {
+    return unmodifiableSortedSet(new TreeSet<>(classes.keySet()));
+  }
+
+  public <A extends Annotation> Map<String, AnnotationMap<A>> getFieldAnnotations(
+      String className, Class<A> annotationType) {
+    Map<String, AnnotationMap<A>> fields = new LinkedHashMap<>();
+    classes
+        .getOrDefault(className, new LinkedHashMap<>())
+        .forEach(
+            (element, annotations) -> {
+              String encoded = annotations.get(annotationType.getName());
+              if (encoded != null && element.startsWith(FIELD))
+                fields.put(element.substring(FIELD.length()), (AnnotationMap<A>) decode(encoded));
+            });
+    return fields;
+  }
+
+  public <A extends Annotation> AnnotationMap<A> getTypeAnnotation(
+      String className, Class<A> annotationType) {
+    Map<String, String> annotations =
+        classes.getOrDefault(className, new LinkedHashMap<>()).get(TYPE);
+    String encoded = annotations != null ? annotations.get(annotationType.getName()) : null;
+    return encoded != null ? (AnnotationMap<A>) decode(encoded) : null;
+  }
+
+  public SortedSet<String> getUnloadable() {
+    return unmodifiableSortedSet(unloadable);
+  }
+
+  private void add(InputStream in) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+    String header = reader.readLine();
+    if (!HEADER.equals(header))
+      throw new IOException(String.format("Not an annotation index: '%s'", header));
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) add(line);
+  }
+
+  private void add(String line) {
+    if (line.isEmpty()) return;
+    String[] parts = line.split("\t", 3);
+    Map<String, Map<String, String>> elements =
+        classes.computeIfAbsent(parts[0], name -> new LinkedHashMap<>());
+    if (parts.length < 3) return;
+    String encoded = parts[2];
+    String typeName = encoded.substring(1, encoded.indexOf('('));
+    elements.computeIfAbsent(parts[1], element -> new LinkedHashMap<>()).put(typeName, encoded);
+  }
+
+  private Class<? extends Annotation> annotationType(String name) {
+    Class<?> type = load(name);
+    if (!type.isAnnotation())
+      throw new IllegalArgumentException(String.format("Not an annotation type: '%s'", name));
+    return (Class<? extends Annotation>) type;
+  }
+
+  // callers get their own copy, so setting members never changes what the index hands out next
+  private AnnotationMap<?> decode(String encoded) {
+    return decoded.computeIfAbsent(encoded, text -> new Parser(text).annotation()).copy();
+  }
+
+  private Class<?> load(String name) {
+    try {
+      // also resolves primitive names and array names such as java.lang.String[]
+      return ClassUtils.getClass(loader, name, false);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException(String.format("Cannot load '%s'", name), e);
+    }
+  }
+}
@@ -15,31 +15,33 @@
  */
 package iterator.test.matchers.type.annotation;
 
-import static iterator.Reflection.getAnnotationMemberDefault;
-import static iterator.Reflection.getAnnotationMemberType;
-import static iterator.Reflection.getAnnotationMemberValue;
-import static java.util.Collections.unmodifiableSet;
 import static org.apache.commons.lang3.ArrayUtils.toObject;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.builder.EqualsBuilder.reflectionEquals;
 import static org.apache.commons.lang3.builder.HashCodeBuilder.reflectionHashCode;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.StringJoiner;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+// Thread safety: a map holds an immutable snapshot of member values in a volatile array. set
+// publishes a new snapshot under the map's lock, with() and the factories build new maps, and
+// every read works from the one snapshot it loaded, so maps may be shared as constants between
+// tests running in parallel. Member values are never written once reachable from a published
+// snapshot, and the cached fingerprint is an immutable object tied to the snapshot it came from.
 @SuppressWarnings({"unchecked", "rawtypes"})
 public final class AnnotationMap<A extends Annotation> {
 
   private static final String VALUE = "value";
 
-  public abstract static class MemberValue<T> {
+  public abstract static class MemberValue<T> implements Cloneable {
 
     private static final String UNDEFINED = "UNDEFINED";
 
@@ -47,6 +49,7 @@ public final class AnnotationMap<A extends Annotation> {
 
     protected final Class<T> type;
 
+    // written only before the member value is published, by its constructor or withValue
     T value;
 
     private final boolean nullable;
@@ -96,6 +99,11 @@ public final class AnnotationMap<A extends Annotation> {
       return nullable;
     }
 
+    // compares against a member value as returned by the annotation accessor
+    boolean matchesMember(Object member) {
+      return Objects.equals(value, member);
+    }
+
     @Override
     public String toString() {
       return isUndefined() ? UNDEFINED : String.valueOf(value);
@@ -104,6 +112,17 @@ public final class AnnotationMap<A extends Annotation> {
     void setValue(T value) {
       this.value = value;
     }
+
+    // a shallow copy, so variants never write through to a member value their parent still holds
+    MemberValue<T> withValue(T value) {
+      try {
+        MemberValue<T> copy = (MemberValue<T>) clone();
+        copy.setValue(value);
+        return copy;
+      } catch (CloneNotSupportedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
   }
 
   abstract static class ArrayMemberValue<T> extends MemberValue<T[]> {
@@ -117,6 +136,19 @@ public final class AnnotationMap<A extends Annotation> {
       return (def != null || value != null) && !Arrays.equals(def, value);
     }
 
+    @Override
+    boolean matchesMember(Object member) {
+      if (value == null || member == null) return value == member;
+      if (member instanceof Object[]) return Arrays.equals(value, (Object[]) member);
+      // primitive arrays are held boxed, so compare element by element without boxing a copy
+      int length = Array.getLength(member);
+      if (length != value.length) return false;
+      for (int i = 0; i < length; i++) {
+        if (!Objects.equals(value[i], Array.get(member, i))) return false;
+      }
+      return true;
+    }
+
     @Override
     public String toString() {
       if (value == null) return super.toString();
@@ -140,10 +172,27 @@ public final class AnnotationMap<A extends Annotation> {
   static final class AnnotationArrayMemberValue<A extends Annotation>
       extends ObjectArrayMemberValue<A> {
 
-    private final List<AnnotationMap<A>> valueMaps;
+    private List<AnnotationMap<A>> valueMaps;
 
     AnnotationArrayMemberValue(A[] value, A[] def, Class<A[]> type) {
       super(value, def, type);
+      setValue(value);
+    }
+
+    @Override
+    boolean matchesMember(Object member) {
+      if (valueMaps == null || member == null) return valueMaps == null && member == null;
+      Annotation[] annotations = (Annotation[]) member;
+      if (annotations.length != valueMaps.size()) return false;
+      for (int i = 0; i < annotations.length; i++) {
+        if (!valueMaps.get(i).matches(annotations[i])) return false;
+      }
+      return true;
+    }
+
+    @Override
+    void setValue(A[] value) {
+      super.setValue(value);
       valueMaps =
           value == null
               ? null
@@ -161,10 +210,21 @@ public final class AnnotationMap<A extends Annotation> {
 
   static final class AnnotationMemberValue<A extends Annotation> extends ObjectMemberValue<A> {
 
-    private final AnnotationMap<A> valueMap;
+    private AnnotationMap<A> valueMap;
 
     AnnotationMemberValue(A value, A def, Class<A> type) {
       super(value, def, type, true);
+      setValue(value);
+    }
+
+    @Override
+    boolean matchesMember(Object member) {
+      return valueMap != null ? valueMap.matches((Annotation) member) : member == null;
+    }
+
+    @Override
+    void setValue(A value) {
+      super.setValue(value);
       valueMap = value != null ? of(value) : null;
     }
 
@@ -354,6 +414,32 @@ public final class AnnotationMap<A extends Annotation> {
     }
   }
 
+  // immutable, so it may be published racily; values identifies the snapshot it was computed from
+  private static final class Hashes {
+
+    private final MemberValue<?>[] values;
+
+    // the xor of every member's contribution to the fingerprint
+    private final long members;
+
+    private final long fingerprint;
+
+    Hashes(AnnotationSchema<?> schema, MemberValue<?>[] values, long members) {
+      this.values = values;
+      this.members = members;
+      fingerprint = Fingerprint.of(schema, members);
+    }
+
+    // a variant swaps the changed member's contribution, leaving the others untouched
+    Hashes with(AnnotationSchema<?> schema, MemberValue<?> old, MemberValue<?>[] values, int index) {
+      long changed =
+          members
+              ^ Fingerprint.member(schema, index, Fingerprint.value(old.getValue()))
+              ^ Fingerprint.member(schema, index, Fingerprint.value(values[index].getValue()));
+      return new Hashes(schema, values, changed);
+    }
+  }
+
   static final class IntArrayMemberValue extends ObjectArrayMemberValue<Integer> {
 
     IntArrayMemberValue(int[] value, int[] def) {
@@ -466,7 +552,20 @@ public final class AnnotationMap<A extends Annotation> {
     }
   }
 
-  private enum MemberValueFactory {
+  // an annotation instance equal to one snapshot, compiled when the map was made from one
+  private static final class Synthesised<A extends Annotation> {
+
+    private final MemberValue<?>[] values;
+
+    private final A annotation;
+
+    Synthesised(MemberValue<?>[] values, A annotation) {
+      this.values = values;
+      this.annotation = annotation;
+    }
+  }
+
+  enum MemberValueFactory {
     ANNOTATION {
 
       @Override
@@ -838,14 +937,10 @@ public final class AnnotationMap<A extends Annotation> {
       }
     };
 
-    static <A extends Annotation> MemberValue<?> forMember(
-        String memberName, A annotation, Class<A> annotationType) {
-      Object def = getAnnotationMemberDefault(annotationType, memberName);
-      Object val = annotation != null ? getAnnotationMemberValue(annotation, memberName) : def;
-      Class<?> type = getAnnotationMemberType(annotationType, memberName);
+    static MemberValueFactory forType(Class<?> type) {
       if (type != null) {
         for (MemberValueFactory fac : values()) {
-          if (fac.isValueType(type)) return fac.newMemberValue(val, def, type);
+          if (fac.isValueType(type)) return fac;
         }
       }
       throw new IllegalArgumentException(
@@ -869,7 +964,7 @@ public final class AnnotationMap<A extends Annotation> {
 
     // you can either have: a value AND a default; a value but NO default; neither value NOR default
     // should never occur: a default but NO value
-    private MemberValue<?> newMemberValue(Object value, Object def, Class<?> type) {
+    MemberValue<?> newMemberValue(Object value, Object def, Class<?> type) {
       if (value != null && def != null) {
         return newMemberValueWithValueAndDefault(value, def, type);
       }
@@ -883,18 +978,128 @@ public final class AnnotationMap<A extends Annotation> {
 
   private static final String F = "f";
 
+  public static long fingerprint(Annotation annotation) {
+    return Fingerprint.of(annotation);
+  }
+
   public static <A extends Annotation> AnnotationMap<A> from(Class<A> annotationType) {
-    return new AnnotationMap<>(annotationType, null);
+    AnnotationEvents.MapConstruction event = AnnotationEvents.MapConstruction.start();
+    AnnotationSchema<A> schema = AnnotationSchema.of(annotationType);
+    return event.completed("from", new AnnotationMap<>(schema, newValues(schema, null), null));
+  }
+
+  public static <A extends Annotation> AnnotationMap<A> from(
+      Class<A> annotationType, Map<String, ?> members) {
+    AnnotationEvents.MapConstruction event = AnnotationEvents.MapConstruction.start();
+    AnnotationSchema<A> schema = AnnotationSchema.of(annotationType);
+    MemberValue<?>[] values = newValues(schema, null);
+    List<String> errors = new ArrayList<>();
+    members.forEach((name, value) -> put(schema, values, name, value, errors));
+    return event.completed("from(Map)", validated(schema, values, errors));
+  }
+
+  public static <A extends Annotation> AnnotationMap<A> from(
+      Class<A> annotationType, String[] names, Object[] members) {
+    if (names.length != members.length)
+      throw new IllegalArgumentException(
+          String.format(
+              "Expected as many member values as names but was %d names and %d values",
+              names.length, members.length));
+    AnnotationEvents.MapConstruction event = AnnotationEvents.MapConstruction.start();
+    AnnotationSchema<A> schema = AnnotationSchema.of(annotationType);
+    MemberValue<?>[] values = newValues(schema, null);
+    List<String> errors = new ArrayList<>();
+    for (int i = 0; i < names.length; i++) put(schema, values, names[i], members[i], errors);
+    return event.completed("from(String[], Object[])", validated(schema, values, errors));
   }
 
   public static <A extends Annotation> AnnotationMap<A> of(A annotation) {
-    return new AnnotationMap<>(annotation);
+    AnnotationEvents.MapConstruction event = AnnotationEvents.MapConstruction.start();
+    AnnotationSchema<A> schema = AnnotationSchema.of((Class<A>) annotation.annotationType());
+    AnnotationMap<A> map = new AnnotationMap<>(schema, newValues(schema, annotation), null);
+    // the annotation itself is the cheapest instance equal to its map
+    map.synthesised = new Synthesised<>(map.values, annotation);
+    return event.completed("of", map);
+  }
+
+  // members in schema order and annotation form, as a generated builder collects them
+  static <A extends Annotation> AnnotationMap<A> ofMembers(
+      AnnotationSchema<A> schema, Object[] members) {
+    MemberValue<?>[] values = new MemberValue<?>[schema.size()];
+    for (int i = 0; i < values.length; i++)
+      values[i] =
+          schema.getFactory(i).newMemberValue(members[i], schema.getDefault(i), schema.getType(i));
+    return new AnnotationMap<>(schema, values, null);
+  }
+
+  private static boolean diffMember(
+      MemberValue<?> exp, MemberValue<?> act, String path, AnnotationMapDiff diff) {
+    if (exp.getValue() == null || act.getValue() == null) return diff.add(path, exp, act);
+    if (exp instanceof AnnotationMemberValue) {
+      AnnotationMap<?> expMap = ((AnnotationMemberValue<?>) exp).valueMap;
+      return expMap.diff(((AnnotationMemberValue<?>) act).valueMap, path + ".", diff);
+    }
+    if (exp instanceof ArrayMemberValue) {
+      Object[] expArr = (Object[]) exp.getValue();
+      Object[] actArr = (Object[]) act.getValue();
+      int index = Arrays.mismatch(expArr, actArr);
+      if (index >= expArr.length || index >= actArr.length)
+        return diff.add(path + ".length", expArr.length, actArr.length);
+      String elementPath = String.format("%s[%d]", path, index);
+      if (exp instanceof AnnotationArrayMemberValue) {
+        AnnotationMap<?> expMap = ((AnnotationArrayMemberValue<?>) exp).valueMaps.get(index);
+        AnnotationMap<?> actMap = ((AnnotationArrayMemberValue<?>) act).valueMaps.get(index);
+        return expMap.diff(actMap, elementPath + ".", diff);
+      }
+      ArrayMemberValue<Object> arr = (ArrayMemberValue<Object>) exp;
+      return diff.add(elementPath, arr.format(expArr[index]), arr.format(actArr[index]));
+    }
+    return diff.add(path, exp, act);
   }
 
   private static String doubleQuoted(String str) {
     return String.format("\"%s\"", str);
   }
 
+  private static String invalid(String name, MemberValue<?> mv, Object value) {
+    if (value == null) {
+      return mv.isNullable()
+          ? null
+          : String.format(
+              "Cannot set member '%s' of type '%s' null", name, mv.getType().getSimpleName());
+    }
+    return mv.getType().isAssignableFrom(value.getClass())
+        ? null
+        : typeMismatch(name, mv, value.getClass());
+  }
+
+  private static MemberValue<?>[] newValues(AnnotationSchema<?> schema, Annotation annotation) {
+    MemberValue<?>[] values = new MemberValue<?>[schema.size()];
+    for (int i = 0; i < values.length; i++) {
+      Object def = schema.getDefault(i);
+      Object val = annotation != null ? schema.getValue(annotation, i) : def;
+      values[i] = schema.getFactory(i).newMemberValue(val, def, schema.getType(i));
+    }
+    return values;
+  }
+
+  // collects rather than throws, so bulk construction reports every bad member at once
+  private static void put(
+      AnnotationSchema<?> schema,
+      MemberValue<?>[] values,
+      String name,
+      Object value,
+      List<String> errors) {
+    int index = schema.indexOf(name);
+    if (index < 0) {
+      errors.add(String.format("No such member: '%s'", name));
+      return;
+    }
+    String error = invalid(name, values[index], value);
+    if (error != null) errors.add(error);
+    else values[index] = ((MemberValue<Object>) values[index]).withValue(value);
+  }
+
   private static String singleQuoted(Character ch) {
     return String.format("'%s'", ch);
   }
@@ -903,34 +1108,84 @@ public final class AnnotationMap<A extends Annotation> {
     return String.format("%s%s", obj, AnnotationMap.F);
   }
 
+  private static String typeMismatch(String name, MemberValue<?> mv, Class<?> memberType) {
+    return String.format(
+        "Cannot get member '%s' of type '%s' as requested type: '%s'",
+        name, mv.getType(), memberType);
+  }
+
+  private static <A extends Annotation> AnnotationMap<A> validated(
+      AnnotationSchema<A> schema, MemberValue<?>[] values, List<String> errors) {
+    if (!errors.isEmpty())
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid members for @%s: %s",
+              schema.getAnnotationType().getSimpleName(), String.join("; ", errors)));
+    return new AnnotationMap<>(schema, values, null);
+  }
+
   private final Class<A> annotationClass;
 
-  private final SortedMap<String, MemberValue<?>> members = new TreeMap<>();
+  private final AnnotationSchema<A> schema;
 
-  private final Set<String> memberNames;
+  // replaced wholesale, never written through, so a reader always sees one consistent snapshot
+  private volatile MemberValue<?>[] values;
 
-  private AnnotationMap(A annotation) {
-    this((Class<A>) annotation.annotationType(), annotation);
-  }
+  private volatile Hashes hashes;
 
-  private AnnotationMap(Class<A> annotationClass, A annotation) {
-    this.annotationClass = annotationClass;
-    Method[] methods = annotationClass.getDeclaredMethods();
-    for (Method m : methods) {
-      String memberName = m.getName();
-      MemberValue<?> mv = MemberValueFactory.forMember(memberName, annotation, annotationClass);
-      members.put(memberName, mv);
-    }
-    memberNames = unmodifiableSet(members.keySet());
+  private volatile Synthesised<A> synthesised;
+
+  private AnnotationMap(AnnotationSchema<A> schema, MemberValue<?>[] values, Hashes hashes) {
+    this.schema = schema;
+    this.annotationClass = schema.getAnnotationType();
+    this.values = values;
+    this.hashes = hashes;
+    AnnotationMetrics metrics = Metrics.current;
+    if (metrics != AnnotationMetrics.NOOP)
+      metrics.mapCreated(annotationClass, Metrics.estimateMapBytes(values.length));
   }
 
   public boolean containsMember(String name) {
-    return memberNames.contains(name);
+    return schema.indexOf(name) >= 0;
+  }
+
+  public AnnotationMapDiff diff(AnnotationMap<A> actual) {
+    return diff(actual, AnnotationMapDiff.DEFAULT_LIMIT);
+  }
+
+  public AnnotationMapDiff diff(AnnotationMap<A> actual, int maxDifferences) {
+    return difference(actual, maxDifferences);
   }
 
   @Override
   public boolean equals(Object obj) {
-    return reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (!(obj instanceof AnnotationMap)) return false;
+    AnnotationMap<?> other = (AnnotationMap<?>) obj;
+    // differing fingerprints settle most comparisons without touching the member values
+    if (!annotationClass.equals(other.annotationClass) || fingerprint() != other.fingerprint())
+      return false;
+    MemberValue<?>[] vals = values;
+    MemberValue<?>[] otherVals = other.values;
+    for (int i : schema.getComparisonOrder()) {
+      if (!vals[i].equals(otherVals[i])) {
+        schema.recordDifference(i);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public long fingerprint() {
+    MemberValue<?>[] vals = values;
+    Hashes h = hashes;
+    if (h == null || h.values != vals) {
+      long members = 0;
+      for (int i = 0; i < vals.length; i++)
+        members ^= Fingerprint.member(schema, i, Fingerprint.value(vals[i].getValue()));
+      hashes = h = new Hashes(schema, vals, members);
+    }
+    return h.fingerprint;
   }
 
   public Class<A> getAnnotationClass() {
@@ -938,75 +1193,146 @@ public final class AnnotationMap<A extends Annotation> {
   }
 
   public Set<String> getMemberNames() {
-    return memberNames;
+    return schema.getMemberNames();
   }
 
   public <T> T get(String name, Class<T> memberType) {
-    assertContains(name);
-    MemberValue<T> mv = (MemberValue<T>) members.get(name);
+    MemberValue<T> mv = (MemberValue<T>) values[indexOf(name)];
     assertType(name, mv, memberType);
     return mv.getValue();
   }
 
   @Override
   public int hashCode() {
-    return reflectionHashCode(this);
-  }
-
-  public <T> AnnotationMap<A> set(String name, T value) {
-    assertContains(name);
-    MemberValue<T> mv = (MemberValue<T>) members.get(name);
-    if (value != null) {
-      assertType(name, mv, value.getClass());
-      mv.setValue(value);
-    } else {
-      if (!mv.isNullable())
-        throw new IllegalArgumentException(
-            String.format(
-                "Cannot set member '%s' of type '%s' null", name, mv.getType().getSimpleName()));
-      mv.setValue(null);
+    return Long.hashCode(fingerprint());
+  }
+
+  public boolean matches(Annotation annotation) {
+    if (annotation == null || !annotationClass.equals(annotation.annotationType())) return false;
+    MemberValue<?>[] vals = values;
+    Synthesised<A> s = synthesised;
+    if (s != null && s.values == vals && s.annotation == annotation) return true;
+    // reads members lazily in comparison order, stopping at the first that differs
+    for (int i : schema.getComparisonOrder()) {
+      if (!vals[i].matchesMember(schema.getValue(annotation, i))) {
+        schema.recordDifference(i);
+        return false;
+      }
     }
+    return true;
+  }
+
+  // serialised so concurrent sets never lose each other's members, readers never take the lock.
+  // the new snapshot copies every value reference, o(n) in members, but only the changed member is
+  // rehashed
+  public synchronized <T> AnnotationMap<A> set(String name, T value) {
+    int index = indexOf(name);
+    MemberValue<?>[] old = values;
+    MemberValue<?>[] vals = old.clone();
+    vals[index] = withValue(name, old[index], value);
+    Hashes h = hashes;
+    values = vals;
+    hashes = h != null && h.values == old ? h.with(schema, old[index], vals, index) : null;
     return this;
   }
 
-  private void assertContains(String name) {
-    if (!containsMember(name))
-      throw new IllegalArgumentException(String.format("No such member: '%s'", name));
+  // the same instance until a member is set, as equal to the map as a compiled annotation would be
+  public A toAnnotation() {
+    MemberValue<?>[] vals = values;
+    Synthesised<A> s = synthesised;
+    if (s == null || s.values != vals)
+      synthesised = s = new Synthesised<>(vals, AnnotationProxy.of(this, vals));
+    return s.annotation;
+  }
+
+  // like set, o(n) in members for the copied value references, with only the changed member rehashed
+  public <T> AnnotationMap<A> with(String name, T value) {
+    int index = indexOf(name);
+    MemberValue<?>[] old = values;
+    MemberValue<?>[] vals = old.clone();
+    vals[index] = withValue(name, old[index], value);
+    Hashes h = hashes;
+    return new AnnotationMap<>(
+        schema,
+        vals,
+        h != null && h.values == old ? h.with(schema, old[index], vals, index) : null);
+  }
+
+  // snapshots are never written through, so a copy can share the current one
+  AnnotationMap<A> copy() {
+    AnnotationMap<A> copy = new AnnotationMap<>(schema, values, hashes);
+    copy.synthesised = synthesised;
+    return copy;
+  }
+
+  AnnotationMapDiff difference(AnnotationMap<?> actual, int maxDifferences) {
+    AnnotationMapDiff diff = new AnnotationMapDiff(annotationClass, maxDifferences);
+    if (!equals(actual)) diff(actual, "", diff);
+    return diff;
+  }
+
+  int size() {
+    return schema.size();
+  }
+
+  // false once the diff has reached its limit, which stops the walk early
+  private boolean diff(AnnotationMap<?> actual, String prefix, AnnotationMapDiff diff) {
+    if (actual == null || !annotationClass.equals(actual.annotationClass))
+      return diff.add(prefix, this, actual);
+    MemberValue<?>[] vals = values;
+    MemberValue<?>[] actualVals = actual.values;
+    for (int i = 0; i < vals.length; i++) {
+      MemberValue<?> exp = vals[i];
+      MemberValue<?> act = actualVals[i];
+      if (!Objects.deepEquals(exp.getValue(), act.getValue())
+          && !diffMember(exp, act, prefix + schema.getName(i), diff)) return false;
+    }
+    return true;
+  }
+
+  private int indexOf(String name) {
+    int index = schema.indexOf(name);
+    if (index < 0) throw new IllegalArgumentException(String.format("No such member: '%s'", name));
+    return index;
+  }
+
+  private <T> MemberValue<T> withValue(String name, MemberValue<?> current, T value) {
+    String error = invalid(name, current, value);
+    if (error != null) throw new IllegalArgumentException(error);
+    return ((MemberValue<T>) current).withValue(value);
   }
 
   private void assertType(String name, MemberValue<?> mv, Class<?> memberType) {
     if (!mv.getType().isAssignableFrom(memberType))
-      throw new IllegalArgumentException(
-          String.format(
-              "Cannot get member '%s' of type '%s' as requested type: '%s'",
-              name, mv.getType(), memberType));
+      throw new IllegalArgumentException(typeMismatch(name, mv, memberType));
   }
 
   @Override
   public String toString() {
+    MemberValue<?>[] vals = values;
     StringBuilder sb = new StringBuilder("@");
     sb.append(getAnnotationClass().getSimpleName());
     StringJoiner joiner = new StringJoiner(COMMA, "(", ")");
     joiner.setEmptyValue(EMPTY);
-    if (members.containsKey(VALUE)) {
-      MemberValue<?> mv = members.get(VALUE);
+    int valueIndex = schema.indexOf(VALUE);
+    if (valueIndex >= 0) {
+      MemberValue<?> mv = vals[valueIndex];
       if (mv.isUndefined() || mv.isNotDefault()) {
-        if (members.size() > 1
-            && members.entrySet().stream()
-                .filter(entry -> !VALUE.equals(entry.getKey()))
-                .anyMatch(entry -> entry.getValue().isNotDefault())) {
+        boolean othersNotDefault = false;
+        for (int i = 0; i < vals.length && !othersNotDefault; i++)
+          othersNotDefault = i != valueIndex && vals[i].isNotDefault();
+        if (othersNotDefault) {
           joiner.add(String.format("value = %s", mv));
         } else {
           joiner.add(mv.toString());
         }
       }
     }
-    members.entrySet().stream()
-        .filter(
-            entry ->
-                !VALUE.equals(entry.getKey())
-                    && (entry.getValue().isUndefined() || entry.getValue().isNotDefault()))
-        .forEach(entry -> joiner.add(String.format("%s = %s", entry.getKey(), entry.getValue())));
+    for (int i = 0; i < vals.length; i++) {
+      MemberValue<?> mv = vals[i];
+      if (i != valueIndex && (mv.isUndefined() || mv.isNotDefault()))
+        joiner.add(String.format("%s = %s", schema.getName(i), mv));
+    }
     sb.append(joiner.toString());
     return sb.toString();
   }
@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+
+// Base of the generated builders. Members are held in schema order and annotation form, as the
+// accessors return them, and are only converted to member values once, when the map is built.
+@SuppressWarnings("unchecked")
+public abstract class AnnotationMapBuilder<
+    A extends Annotation, B extends AnnotationMapBuilder<A, B>> {
+
+  // synthesises the nested annotation defaults of generated metadata
+  public static <A extends Annotation> A annotation(
+      Class<A> annotationType, String[] names, Object[] members) {
+    AnnotationSchema<A> schema = AnnotationSchema.of(annotationType);
+    Object[] values = defaults(schema);
+    for (int i = 0; i < names.length; i++) {
+      int index = schema.indexOf(names[i]);
+      if (index < 0)
+        throw new IllegalArgumentException(String.format("No such member: '%s'", names[i]));
+      values[index] = members[i];
+    }
+    return AnnotationMap.ofMembers(schema, values).toAnnotation();
+  }
+
+  private static Object[] defaults(AnnotationSchema<?> schema) {
+    Object[] values = new Object[schema.size()];
+    for (int i = 0; i < values.length; i++) values[i] = schema.getDefault(i);
+    return values;
+  }
+
+  private final AnnotationSchema<A> schema;
+
+  private final Object[] members;
+
+  protected AnnotationMapBuilder(Class<A> annotationType) {
+    schema = AnnotationSchema.of(annotationType);
+    members = defaults(schema);
+  }
+
+  public AnnotationMap<A> build() {
+    AnnotationEvents.MapConstruction event = AnnotationEvents.MapConstruction.start();
+    return event.completed("builder", AnnotationMap.ofMembers(schema, members.clone()));
+  }
+
+  protected B member(int index, Object value) {
+    members[index] = value;
+    return (B) this;
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+public final class AnnotationMapDiff {
+
+  public static final class Difference {
+
+    private final String path;
+
+    private final String expected;
+
+    private final String actual;
+
+    private Difference(String path, String expected, String actual) {
+      this.path = path;
+      this.expected = expected;
+      this.actual = actual;
+    }
+
+    public String getActual() {
+      return actual;
+    }
+
+    public String getExpected() {
+      return expected;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    @Override
+    public String toString() {
+      String difference = String.format("expected %s but was %s", expected, actual);
+      return path.isEmpty() ? difference : String.format("%s: %s", path, difference);
+    }
+  }
+
+  public static final int DEFAULT_LIMIT = 10;
+
+  private final String annotationName;
+
+  private final int limit;
+
+  private final List<Difference> differences = new ArrayList<>();
+
+  private boolean truncated;
+
+  AnnotationMapDiff(Class<?> annotationClass, int limit) {
+    if (limit < 1) throw new IllegalArgumentException("Difference limit must be at least one");
+    this.annotationName = annotationClass.getSimpleName();
+    this.limit = limit;
+  }
+
+  public List<Difference> getDifferences() {
+    return Collections.unmodifiableList(differences);
+  }
+
+  public boolean isEmpty() {
+    return differences.isEmpty();
+  }
+
+  // true when diffing stopped at the limit with differences left unreported
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(", ", "@" + annotationName + "(", ")");
+    differences.forEach(difference -> joiner.add(difference.toString()));
+    if (truncated) joiner.add("...");
+    return joiner.toString();
+  }
+
+  boolean add(String path, Object expected, Object actual) {
+    if (differences.size() >= limit) {
+      truncated = true;
+      return false;
+    }
+    differences.add(new Difference(path, String.valueOf(expected), String.valueOf(actual)));
+    return true;
+  }
+}
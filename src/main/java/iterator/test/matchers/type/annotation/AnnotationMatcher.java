@@ -22,8 +22,26 @@ import org.hamcrest.TypeSafeMatcher;
 
 public abstract class AnnotationMatcher<A extends Annotation, T> extends TypeSafeMatcher<Class<T>> {
 
+  private static final class Resolution<A extends Annotation> {
+
+    private final A anno;
+
+    private AnnotationMap<A> map;
+
+    private Resolution(A anno) {
+      this.anno = anno;
+    }
+
+    private AnnotationMap<A> getMap() {
+      if (map == null && anno != null) map = AnnotationMap.of(anno);
+      return map;
+    }
+  }
+
   private final AnnotationMap<A> expected;
 
+  private volatile FailedMatch<Resolution<A>> failed;
+
   protected AnnotationMatcher(AnnotationMap<A> expected) {
     this.expected = expected;
   }
@@ -35,9 +53,23 @@ public abstract class AnnotationMatcher<A extends Annotation, T> extends TypeSaf
 
   @Override
   protected final void describeMismatchSafely(Class<T> item, Description mismatchDescription) {
-    A anno = findAnnotation(item);
-    Object map = anno != null ? AnnotationMap.of(anno) : null;
-    mismatchDescription.appendText(String.valueOf(map));
+    AnnotationMetrics metrics = Metrics.current;
+    long start = metrics != AnnotationMetrics.NOOP ? System.nanoTime() : 0;
+    AnnotationEvents.MismatchRendering event = new AnnotationEvents.MismatchRendering();
+    event.begin();
+    Resolution<A> resolution = FailedMatch.of(failed, item);
+    if (resolution == null) resolution = resolve(item);
+    AnnotationMap<A> actual = resolution.getMap();
+    mismatchDescription.appendText(
+        actual != null ? expected.diff(actual).toString() : String.valueOf(actual));
+    event.end();
+    if (event.shouldCommit()) {
+      event.annotationType = annotationType(resolution);
+      event.target = item;
+      event.commit();
+    }
+    if (metrics != AnnotationMetrics.NOOP)
+      metrics.mismatchDescribed(annotationType(resolution), System.nanoTime() - start);
   }
 
   protected abstract A findAnnotation(Class<T> item);
@@ -48,7 +80,48 @@ public abstract class AnnotationMatcher<A extends Annotation, T> extends TypeSaf
 
   @Override
   protected final boolean matchesSafely(Class<T> item) {
-    A anno = findAnnotation(item);
-    return anno == null ? expected == null : expected.equals(AnnotationMap.of(anno));
+    return evaluate(item, false);
+  }
+
+  // how sweeps name what the matcher checks on each class
+  String element() {
+    return "type";
+  }
+
+  // for sweeps, which only hold classes carrying the annotation to the matcher: null when the item
+  // does not carry it, otherwise whether it matches, from a single lookup
+  final Boolean matchesIfPresent(Class<T> item) {
+    return evaluate(item, true);
+  }
+
+  private Class<? extends Annotation> annotationType(Resolution<A> resolution) {
+    if (expected != null) return expected.getAnnotationClass();
+    return resolution.anno != null ? resolution.anno.annotationType() : Annotation.class;
+  }
+
+  private Boolean evaluate(Class<T> item, boolean ifPresent) {
+    AnnotationMetrics metrics = Metrics.current;
+    long start = metrics != AnnotationMetrics.NOOP ? System.nanoTime() : 0;
+    AnnotationEvents.MatcherEvaluation event = new AnnotationEvents.MatcherEvaluation();
+    event.begin();
+    Resolution<A> resolution = resolve(item);
+    if (ifPresent && resolution.anno == null) return null;
+    boolean matches =
+        resolution.anno == null ? expected == null : expected.matches(resolution.anno);
+    if (!matches) failed = new FailedMatch<>(item, resolution);
+    event.end();
+    if (event.shouldCommit()) {
+      event.annotationType = annotationType(resolution);
+      event.target = item;
+      event.matched = matches;
+      event.commit();
+    }
+    if (metrics != AnnotationMetrics.NOOP)
+      metrics.evaluated(annotationType(resolution), item, matches, System.nanoTime() - start);
+    return matches;
+  }
+
+  private Resolution<A> resolve(Class<T> item) {
+    return new Resolution<>(findAnnotation(item));
   }
 }
@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+
+// Describes an annotation type without reflection. Implementations are generated for the types
+// named by @GenerateAnnotationMaps and registered as services, so AnnotationSchema reads members
+// through plain accessor calls. Member arrays are in ascending name order, the schema order.
+public interface AnnotationMetadata<A extends Annotation> {
+
+  Class<A> annotationType();
+
+  // null where the member has no default
+  Object[] memberDefaults();
+
+  String[] memberNames();
+
+  Class<?>[] memberTypes();
+
+  Object memberValue(A annotation, int index);
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+
+// Receives measurements from matchers, maps and caches. Every method defaults to doing nothing, so
+// an implementation overrides only what it records. Calls arrive concurrently from any thread.
+public interface AnnotationMetrics {
+
+  // the caches reported on, by name
+  String ANNOTATION_BLOOM_FILTER = "AnnotationBloomFilter";
+
+  String ANNOTATION_PRESENCE = "AnnotationPresence";
+
+  String ANNOTATION_SCHEMA = "AnnotationSchema";
+
+  String MEMBER_TABLE = "MemberTable";
+
+  AnnotationMetrics NOOP = new AnnotationMetrics() {};
+
+  static AnnotationMetrics current() {
+    return Metrics.current;
+  }
+
+  static void install(AnnotationMetrics metrics) {
+    Metrics.current = metrics != null ? metrics : NOOP;
+  }
+
+  // the annotation type is the one the lookup was made for, or null when it serves no one type
+  default void cacheAccessed(
+      String cache, Class<? extends Annotation> annotationType, Object key) {}
+
+  default void cacheMissed(String cache, Class<? extends Annotation> annotationType, Object key) {}
+
+  default void evaluated(
+      Class<? extends Annotation> annotationType, Class<?> target, boolean matched, long nanos) {}
+
+  default void mapCreated(Class<? extends Annotation> annotationType, long estimatedBytes) {}
+
+  default void mismatchDescribed(Class<? extends Annotation> annotationType, long nanos) {}
+}
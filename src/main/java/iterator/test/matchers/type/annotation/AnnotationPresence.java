@@ -0,0 +1,124 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// per-class bitsets over dense annotation type ids, a superset of the annotations any lookup on the
+// type hierarchy or its fields could find, so a clear bit rejects a class without reflection
+final class AnnotationPresence {
+
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  // held by each annotation type rather than by a map, so an id never outlives its class loader
+  private static final ClassValue<Integer> IDS =
+      new ClassValue<Integer>() {
+
+        @Override
+        protected Integer computeValue(Class<?> annotationType) {
+          return NEXT_ID.getAndIncrement();
+        }
+      };
+
+  private static final long[] EMPTY = new long[0];
+
+  private static final ClassValue<AnnotationPresence> PRESENCE =
+      new ClassValue<AnnotationPresence>() {
+
+        @Override
+        protected AnnotationPresence computeValue(Class<?> type) {
+          return new AnnotationPresence(type);
+        }
+      };
+
+  static boolean onFields(Class<?> type, Class<? extends Annotation> annotationType) {
+    return test(presence(type, annotationType).fieldBits, IDS.get(annotationType));
+  }
+
+  static boolean onType(Class<?> type, Class<? extends Annotation> annotationType) {
+    return test(presence(type, annotationType).typeBits, IDS.get(annotationType));
+  }
+
+  private static AnnotationPresence presence(
+      Class<?> type, Class<? extends Annotation> annotationType) {
+    Metrics.accessed(AnnotationMetrics.ANNOTATION_PRESENCE, annotationType, type);
+    AnnotationPresence presence = PRESENCE.get(type);
+    // computed out of sight of the annotation type asked about, so the first lookup to see a new
+    // entry reports the miss for it
+    if (presence.unreported.get() && presence.unreported.compareAndSet(true, false))
+      Metrics.missed(AnnotationMetrics.ANNOTATION_PRESENCE, annotationType, type);
+    return presence;
+  }
+
+  // a supertype computed on the way counts towards the miss on its subtype
+  private static AnnotationPresence inherited(Class<?> type) {
+    AnnotationPresence presence = PRESENCE.get(type);
+    presence.unreported.set(false);
+    return presence;
+  }
+
+  private static long[] or(long[] bits, long[] other) {
+    long[] result = bits.length >= other.length ? bits : Arrays.copyOf(bits, other.length);
+    for (int i = 0; i < other.length; i++) result[i] |= other[i];
+    return result;
+  }
+
+  private static long[] set(long[] bits, Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      int id = IDS.get(annotation.annotationType());
+      int word = id >>> 6;
+      if (word >= bits.length) bits = Arrays.copyOf(bits, word + 1);
+      bits[word] |= 1L << id;
+    }
+    return bits;
+  }
+
+  private static boolean test(long[] bits, int id) {
+    int word = id >>> 6;
+    return word < bits.length && (bits[word] & (1L << id)) != 0;
+  }
+
+  private final long[] typeBits;
+
+  private final long[] fieldBits;
+
+  private final AtomicBoolean unreported =
+      new AtomicBoolean(Metrics.current != AnnotationMetrics.NOOP);
+
+  private AnnotationPresence(Class<?> type) {
+    long[] types = set(EMPTY, type.getDeclaredAnnotations());
+    long[] fields = EMPTY;
+    for (Field field : type.getDeclaredFields())
+      fields = set(fields, field.getDeclaredAnnotations());
+    Class<?> superclass = type.getSuperclass();
+    if (superclass != null) {
+      AnnotationPresence inherited = inherited(superclass);
+      types = or(types, inherited.typeBits);
+      fields = or(fields, inherited.fieldBits);
+    }
+    for (Class<?> iface : type.getInterfaces()) {
+      AnnotationPresence inherited = inherited(iface);
+      types = or(types, inherited.typeBits);
+      fields = or(fields, inherited.fieldBits);
+    }
+    typeBits = types;
+    fieldBits = fields;
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import iterator.test.matchers.type.annotation.AnnotationMap.MemberValue;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Objects;
+
+// an annotation instance synthesised from a map, honouring the equals, hashCode and toString
+// contracts of java.lang.annotation.Annotation so it compares equal to a compiled annotation
+@SuppressWarnings("unchecked")
+final class AnnotationProxy<A extends Annotation> implements InvocationHandler {
+
+  // one proxy class per annotation type, its constructor looked up once rather than per instance
+  private static final ClassValue<Constructor<?>> CONSTRUCTORS =
+      new ClassValue<Constructor<?>>() {
+
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+          Object prototype =
+              Proxy.newProxyInstance(
+                  type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> null);
+          try {
+            Constructor<?> constructor =
+                prototype.getClass().getConstructor(InvocationHandler.class);
+            // proxies of package private annotations are package private themselves
+            constructor.trySetAccessible();
+            return constructor;
+          } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("No proxy constructor for " + type, e);
+          }
+        }
+      };
+
+  static <A extends Annotation> A of(AnnotationMap<A> map, MemberValue<?>[] values) {
+    Class<A> type = map.getAnnotationClass();
+    AnnotationProxy<A> handler = new AnnotationProxy<>(map, values);
+    try {
+      return type.cast(CONSTRUCTORS.get(type).newInstance(handler));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot synthesise " + map, e);
+    }
+  }
+
+  private final AnnotationSchema<A> schema;
+
+  private final Object[] members;
+
+  // members never change, so the hash is worked out once
+  private final int hash;
+
+  private AnnotationProxy(AnnotationMap<A> map, MemberValue<?>[] values) {
+    schema = AnnotationSchema.of(map.getAnnotationClass());
+    members = new Object[schema.size()];
+    for (int i = 0; i < members.length; i++) {
+      Object value = values[i].getValue();
+      if (value == null)
+        throw new IllegalArgumentException(
+            String.format("Member '%s' of %s has no value", schema.getName(i), map));
+      // maps hold primitive arrays boxed, the accessors return them unboxed
+      members[i] =
+          schema.getType(i).isArray() && value.getClass() != schema.getType(i)
+              ? unboxed(value, schema.getType(i).getComponentType())
+              : value;
+    }
+    hash = hash();
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    String name = method.getName();
+    if (args != null && args.length == 1 && name.equals("equals")) return isEqual(args[0]);
+    if (args == null || args.length == 0) {
+      switch (name) {
+        case "annotationType":
+          return schema.getAnnotationType();
+        case "hashCode":
+          return hash;
+        case "toString":
+          return AnnotationMap.of((A) proxy).toString();
+        default:
+          int index = schema.indexOf(name);
+          if (index >= 0) return copy(members[index]);
+      }
+    }
+    throw new UnsupportedOperationException(method.toString());
+  }
+
+  private static Object copy(Object value) {
+    if (!value.getClass().isArray()) return value;
+    int length = Array.getLength(value);
+    Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+    System.arraycopy(value, 0, copy, 0, length);
+    return copy;
+  }
+
+  private static int hashOf(Object value) {
+    if (!value.getClass().isArray()) return value.hashCode();
+    if (value instanceof Object[]) return Arrays.hashCode((Object[]) value);
+    if (value instanceof boolean[]) return Arrays.hashCode((boolean[]) value);
+    if (value instanceof byte[]) return Arrays.hashCode((byte[]) value);
+    if (value instanceof char[]) return Arrays.hashCode((char[]) value);
+    if (value instanceof short[]) return Arrays.hashCode((short[]) value);
+    if (value instanceof int[]) return Arrays.hashCode((int[]) value);
+    if (value instanceof long[]) return Arrays.hashCode((long[]) value);
+    if (value instanceof float[]) return Arrays.hashCode((float[]) value);
+    return Arrays.hashCode((double[]) value);
+  }
+
+  private static Object unboxed(Object boxed, Class<?> component) {
+    int length = Array.getLength(boxed);
+    Object array = Array.newInstance(component, length);
+    for (int i = 0; i < length; i++) Array.set(array, i, Array.get(boxed, i));
+    return array;
+  }
+
+  private int hash() {
+    int hash = 0;
+    for (int i = 0; i < members.length; i++)
+      hash += (127 * schema.getName(i).hashCode()) ^ hashOf(members[i]);
+    return hash;
+  }
+
+  private boolean isEqual(Object other) {
+    if (!schema.getAnnotationType().isInstance(other)) return false;
+    if (Proxy.isProxyClass(other.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(other);
+      // another synthesised instance compares members directly, without copying them out
+      if (handler instanceof AnnotationProxy) {
+        AnnotationProxy<?> proxy = (AnnotationProxy<?>) handler;
+        return hash == proxy.hash && Arrays.deepEquals(members, proxy.members);
+      }
+    }
+    Annotation annotation = (Annotation) other;
+    for (int i = 0; i < members.length; i++) {
+      if (!Objects.deepEquals(members[i], schema.getValue(annotation, i))) return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+// immutable, so every refinement returns a new rule and rules may be shared between engines
+public final class AnnotationRule {
+
+  static final class FieldRequirement {
+
+    private final Predicate<? super Field> selector;
+
+    private final List<AnnotationMap<?>> expected;
+
+    private FieldRequirement(Predicate<? super Field> selector, List<AnnotationMap<?>> expected) {
+      this.selector = selector;
+      this.expected = expected;
+    }
+
+    List<AnnotationMap<?>> getExpected() {
+      return expected;
+    }
+
+    Predicate<? super Field> getSelector() {
+      return selector;
+    }
+  }
+
+  public static AnnotationRule named(String name) {
+    return new AnnotationRule(name, "", type -> true, new ArrayList<>(), new ArrayList<>());
+  }
+
+  private final String name;
+
+  private final String packagePrefix;
+
+  private final Predicate<? super Class<?>> predicate;
+
+  private final List<AnnotationMap<?>> typeExpectations;
+
+  private final List<FieldRequirement> fieldRequirements;
+
+  private AnnotationRule(
+      String name,
+      String packagePrefix,
+      Predicate<? super Class<?>> predicate,
+      List<AnnotationMap<?>> typeExpectations,
+      List<FieldRequirement> fieldRequirements) {
+    this.name = name;
+    this.packagePrefix = packagePrefix;
+    this.predicate = predicate;
+    this.typeExpectations = unmodifiableList(typeExpectations);
+    this.fieldRequirements = unmodifiableList(fieldRequirements);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  // the package and its subpackages
+  public AnnotationRule inPackage(String packageName) {
+    return new AnnotationRule(
+        name, packageName + ".", predicate, typeExpectations, fieldRequirements);
+  }
+
+  public AnnotationRule matching(Predicate<? super Class<?>> predicate) {
+    return new AnnotationRule(name, packagePrefix, predicate, typeExpectations, fieldRequirements);
+  }
+
+  public AnnotationRule requiringOnFields(
+      Predicate<? super Field> selector, AnnotationMap<?>... expected) {
+    if (expected.length == 0)
+      throw new IllegalArgumentException("At least one expected annotation is required");
+    List<FieldRequirement> requirements = new ArrayList<>(fieldRequirements);
+    requirements.add(new FieldRequirement(selector, Arrays.asList(expected.clone())));
+    return new AnnotationRule(name, packagePrefix, predicate, typeExpectations, requirements);
+  }
+
+  public AnnotationRule requiringOnType(AnnotationMap<?>... expected) {
+    List<AnnotationMap<?>> expectations = new ArrayList<>(typeExpectations);
+    expectations.addAll(Arrays.asList(expected));
+    return new AnnotationRule(name, packagePrefix, predicate, expectations, fieldRequirements);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  // decided from the class name alone, so classes out of scope are never loaded
+  boolean appliesTo(String className) {
+    return className.startsWith(packagePrefix);
+  }
+
+  boolean appliesTo(Class<?> type) {
+    return appliesTo(type.getName()) && predicate.test(type);
+  }
+
+  List<FieldRequirement> getFieldRequirements() {
+    return fieldRequirements;
+  }
+
+  List<AnnotationMap<?>> getTypeExpectations() {
+    return typeExpectations;
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import iterator.Reflection;
+import iterator.test.matchers.type.annotation.AnnotationRule.FieldRequirement;
+import iterator.test.matchers.type.annotation.AnnotationRuleReport.Violation;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.AnnotationFormatError;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// evaluates every registered rule against each class in one parallel pass, so a class is loaded,
+// its annotations looked up and converted at most once however many rules cover it
+public final class AnnotationRuleEngine {
+
+  private static final class Outcome {
+
+    private final List<Violation> violations;
+
+    private final String unloadable;
+
+    private Outcome(List<Violation> violations, String unloadable) {
+      this.violations = violations;
+      this.unloadable = unloadable;
+    }
+  }
+
+  // per class memo of lookups, conversions and match results shared by all rules
+  private static final class Lookups {
+
+    private final Class<?> type;
+
+    private final Map<Class<? extends Annotation>, Annotation> typeAnnotations = new HashMap<>();
+
+    private final Map<AnnotationMap<?>, Boolean> typeMatches = new IdentityHashMap<>();
+
+    private final Map<Annotation, AnnotationMap<?>> conversions = new IdentityHashMap<>();
+
+    private Lookups(Class<?> type) {
+      this.type = type;
+    }
+
+    private String describe(AnnotationMap<?> expected, Annotation actual) {
+      if (actual == null) return String.format("expected %s but was null", expected);
+      AnnotationMap<?> converted = conversions.computeIfAbsent(actual, AnnotationMap::of);
+      return expected.difference(converted, AnnotationMapDiff.DEFAULT_LIMIT).toString();
+    }
+
+    private Annotation onType(Class<? extends Annotation> annotationType) {
+      return typeAnnotations.computeIfAbsent(
+          annotationType,
+          key ->
+              AnnotationPresence.onType(type, key)
+                  ? Reflection.findTypeAnnotation(type, key)
+                  : null);
+    }
+
+    private boolean typeMatches(AnnotationMap<?> expected) {
+      return typeMatches.computeIfAbsent(
+          expected, map -> map.matches(onType(map.getAnnotationClass())));
+    }
+  }
+
+  // what the outcomes amount to, folded as they arrive rather than held per class
+  private static final class Tally {
+
+    private final List<Violation> violations = new ArrayList<>();
+
+    private final List<String> unloadable = new ArrayList<>();
+
+    private int classes;
+
+    private void add(Outcome outcome) {
+      classes++;
+      violations.addAll(outcome.violations);
+      if (outcome.unloadable != null) unloadable.add(outcome.unloadable);
+    }
+
+    private void addAll(Tally other) {
+      classes += other.classes;
+      violations.addAll(other.violations);
+      unloadable.addAll(other.unloadable);
+    }
+  }
+
+  private static final Comparator<Violation> ORDER =
+      Comparator.comparing(Violation::getTarget)
+          .thenComparing(Violation::getRule)
+          .thenComparing(Violation::getElement);
+
+  private final List<AnnotationRule> rules;
+
+  public AnnotationRuleEngine(AnnotationRule... rules) {
+    this(Arrays.asList(rules));
+  }
+
+  public AnnotationRuleEngine(Collection<AnnotationRule> rules) {
+    this.rules = new ArrayList<>(rules);
+  }
+
+  public AnnotationRuleReport evaluate(Collection<? extends Class<?>> classes) {
+    return report(classes.parallelStream().map(this::evaluate));
+  }
+
+  // takes class names from a compile time index instead of walking the classpath
+  public AnnotationRuleReport scan(ClassLoader loader, AnnotationIndex index) {
+    return scan(loader, index.getClassNames().parallelStream());
+  }
+
+  // reads class names from directories and jars as they are evaluated, loading only those some
+  // rule covers by package
+  public AnnotationRuleReport scan(ClassLoader loader, Path... roots) {
+    try (Stream<String> names = Stream.of(roots).flatMap(ClassRoots::classNameStream)) {
+      // split from the lazy listing in growing batches, so evaluation starts with the first names
+      Spliterator<String> spliterator =
+          Spliterators.spliteratorUnknownSize(
+              names.iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+      return scan(loader, StreamSupport.stream(spliterator, true));
+    }
+  }
+
+  private AnnotationRuleReport scan(ClassLoader loader, Stream<String> names) {
+    return report(
+        names
+            .filter(name -> rules.stream().anyMatch(rule -> rule.appliesTo(name)))
+            .map(name -> load(loader, name)));
+  }
+
+  // a class whose annotations cannot be read counts as unloadable, as one that cannot be loaded
+  private Outcome evaluate(Class<?> type) {
+    try {
+      return check(type);
+    } catch (TypeNotPresentException | AnnotationFormatError | LinkageError e) {
+      return new Outcome(Collections.emptyList(), type.getName());
+    }
+  }
+
+  private Outcome check(Class<?> type) {
+    List<Violation> violations = new ArrayList<>();
+    Lookups lookups = new Lookups(type);
+    for (AnnotationRule rule : rules) {
+      if (!rule.appliesTo(type)) continue;
+      for (AnnotationMap<?> expected : rule.getTypeExpectations()) {
+        if (lookups.typeMatches(expected)) continue;
+        Annotation actual = lookups.onType(expected.getAnnotationClass());
+        violations.add(
+            new Violation(
+                rule.getName(), type.getName(), "type", lookups.describe(expected, actual)));
+      }
+      for (FieldRequirement requirement : rule.getFieldRequirements()) {
+        for (Field field : MemberTable.of(type).fields()) {
+          if (!requirement.getSelector().test(field)) continue;
+          for (AnnotationMap<?> expected : requirement.getExpected()) {
+            Annotation actual = field.getAnnotation(expected.getAnnotationClass());
+            if (expected.matches(actual)) continue;
+            String element =
+                String.format(
+                    "field '%s' of %s", field.getName(), field.getDeclaringClass().getSimpleName());
+            violations.add(
+                new Violation(
+                    rule.getName(), type.getName(), element, lookups.describe(expected, actual)));
+          }
+        }
+      }
+    }
+    return new Outcome(violations, null);
+  }
+
+  private Outcome load(ClassLoader loader, String name) {
+    try {
+      return evaluate(Class.forName(name, false, loader));
+    } catch (ClassNotFoundException | LinkageError e) {
+      return new Outcome(Collections.emptyList(), name);
+    }
+  }
+
+  private AnnotationRuleReport report(Stream<Outcome> outcomes) {
+    Tally tally = outcomes.collect(Tally::new, Tally::add, Tally::addAll);
+    tally.violations.sort(ORDER);
+    Collections.sort(tally.unloadable);
+    return new AnnotationRuleReport(
+        tally.classes - tally.unloadable.size(), tally.violations, tally.unloadable);
+  }
+}
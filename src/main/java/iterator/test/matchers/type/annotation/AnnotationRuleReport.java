@@ -0,0 +1,117 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.hamcrest.Description;
+import org.hamcrest.StringDescription;
+
+public final class AnnotationRuleReport {
+
+  public static final class Violation {
+
+    // a matcher's own description and mismatch, for a class it did not match
+    static Violation of(AnnotationMatcher<?, ?> matcher, Class<?> type) {
+      Description mismatch = new StringDescription();
+      matcher.describeMismatch(type, mismatch);
+      return new Violation(
+          StringDescription.toString(matcher),
+          type.getName(),
+          matcher.element(),
+          mismatch.toString());
+    }
+
+    private final String rule;
+
+    private final String target;
+
+    private final String element;
+
+    private final String message;
+
+    Violation(String rule, String target, String element, String message) {
+      this.rule = rule;
+      this.target = target;
+      this.element = element;
+      this.message = message;
+    }
+
+    public String getElement() {
+      return element;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public String getRule() {
+      return rule;
+    }
+
+    public String getTarget() {
+      return target;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("[%s] %s %s: %s", rule, target, element, message);
+    }
+  }
+
+  private final int classesEvaluated;
+
+  private final List<Violation> violations;
+
+  private final List<String> unloadable;
+
+  AnnotationRuleReport(int classesEvaluated, List<Violation> violations, List<String> unloadable) {
+    this.classesEvaluated = classesEvaluated;
+    this.violations = unmodifiableList(violations);
+    this.unloadable = unmodifiableList(unloadable);
+  }
+
+  public int getClassesEvaluated() {
+    return classesEvaluated;
+  }
+
+  public List<String> getUnloadable() {
+    return unloadable;
+  }
+
+  public List<Violation> getViolations() {
+    return violations;
+  }
+
+  public boolean isPassing() {
+    return violations.isEmpty() && unloadable.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(System.lineSeparator());
+    joiner.add(
+        String.format(
+            "%d classes evaluated, %d violations, %d unloadable",
+            classesEvaluated, violations.size(), unloadable.size()));
+    violations.forEach(violation -> joiner.add(violation.toString()));
+    unloadable.forEach(name -> joiner.add(String.format("%s could not be loaded", name)));
+    return joiner.toString();
+  }
+}
@@ -0,0 +1,380 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import iterator.test.matchers.type.annotation.AnnotationRuleReport.Violation;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.AnnotationFormatError;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Sweeps directories and jars through bounded stages. Discovery and reads block on I/O, so they
+// run on virtual threads where the runtime has them, while parsing and matching are CPU bound and
+// run on a pool sized to the cores. The stages are joined by bounded queues, so a slow stage holds
+// back the ones before it and only a queue's worth of names and bytes is ever in flight. A class
+// is loaded only when its constant pool refers to an annotation one of the matchers looks for, and
+// every class declaring such an annotation must then satisfy that matcher.
+public final class AnnotationScanPipeline {
+
+  public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+  private static final Comparator<Violation> ORDER =
+      Comparator.comparing(Violation::getTarget)
+          .thenComparing(Violation::getRule)
+          .thenComparing(Violation::getElement);
+
+  private static final Read END_OF_READS = new Read(null, null);
+
+  private static final Source END_OF_SOURCES = new Source(null, null, null, null);
+
+  private static final class Read {
+
+    private final byte[] bytes;
+
+    private final Set<String> referenced;
+
+    private Read(byte[] bytes, Set<String> referenced) {
+      this.bytes = bytes;
+      this.referenced = referenced;
+    }
+  }
+
+  // what the classes checked so far amount to, gathered from any number of threads
+  private static final class Results {
+
+    private final AtomicInteger evaluated = new AtomicInteger();
+
+    private final Queue<Violation> violations = new ConcurrentLinkedQueue<>();
+
+    private final Queue<String> unloadable = new ConcurrentLinkedQueue<>();
+
+    private AnnotationRuleReport report() {
+      List<Violation> sorted = violations.stream().sorted(ORDER).collect(Collectors.toList());
+      List<String> names = unloadable.stream().sorted().collect(Collectors.toList());
+      return new AnnotationRuleReport(evaluated.get(), sorted, names);
+    }
+  }
+
+  // a class file under a directory root, or an entry of a jar root
+  private static final class Source {
+
+    private final Path file;
+
+    private final JarFile jar;
+
+    private final JarEntry entry;
+
+    // gathers the types the jar's classes refer to, when the jar has no summary yet
+    private final Set<String> referenced;
+
+    private Source(Path file, JarFile jar, JarEntry entry, Set<String> referenced) {
+      this.file = file;
+      this.jar = jar;
+      this.entry = entry;
+      this.referenced = referenced;
+    }
+
+    private byte[] read() throws IOException {
+      if (file != null) return Files.readAllBytes(file);
+      try (InputStream in = jar.getInputStream(entry)) {
+        return in.readAllBytes();
+      }
+    }
+  }
+
+  private interface Stage {
+
+    void run() throws Exception;
+  }
+
+  // the queues, results and first failure of one scan
+  private final class Run {
+
+    private final ClassLoader loader;
+
+    private final ExecutorService io;
+
+    private final ExecutorService cpu;
+
+    private final BlockingQueue<Source> sources = new ArrayBlockingQueue<>(queueCapacity);
+
+    private final BlockingQueue<Read> reads = new ArrayBlockingQueue<>(queueCapacity);
+
+    private final AtomicInteger discoverers;
+
+    private final AtomicInteger readers = new AtomicInteger(readerCount());
+
+    private final Results results = new Results();
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private final List<Future<?>> futures = new ArrayList<>();
+
+    private final Queue<JarFile> jars = new ConcurrentLinkedQueue<>();
+
+    private final Map<Path, Set<String>> summaries = new ConcurrentHashMap<>();
+
+    private Run(ClassLoader loader, int roots) {
+      this.loader = loader;
+      this.discoverers = new AtomicInteger(roots);
+      // a platform thread for every blocking task if there are no virtual threads, so a task
+      // waiting on a full queue can never starve the task that would drain it
+      this.io = ioExecutor(roots + readerCount());
+      this.cpu = Executors.newFixedThreadPool(workers, AnnotationScanPipeline::daemon);
+    }
+
+    private void await() {
+      try {
+        for (Future<?> future : futures) future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(e);
+      } catch (CancellationException | ExecutionException e) {
+        fail(e);
+      } finally {
+        io.shutdownNow();
+        cpu.shutdownNow();
+        jars.forEach(AnnotationScanPipeline::close);
+      }
+    }
+
+    private void discover(Path root) throws IOException, InterruptedException {
+      if (Files.isDirectory(root)) {
+        try (Stream<Path> paths = Files.walk(root)) {
+          Iterator<Path> iterator = paths.iterator();
+          while (iterator.hasNext()) {
+            Path path = iterator.next();
+            if (ClassRoots.isClass(ClassRoots.entryName(root, path)))
+              sources.put(new Source(path, null, null, null));
+          }
+        }
+      } else {
+        AnnotationBloomFilter filter = AnnotationBloomFilter.cached(root);
+        if (filter == null || filter.mightContainAny(matchers.keySet())) {
+          // a jar without a summary is read once, and summarised as its classes are parsed
+          Set<String> referenced = filter == null ? ConcurrentHashMap.newKeySet() : null;
+          if (referenced != null) summaries.put(root, referenced);
+          JarFile jar = new JarFile(root.toFile());
+          jars.add(jar);
+          Enumeration<JarEntry> entries = jar.entries();
+          while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (ClassRoots.isClass(entry.getName()))
+              sources.put(new Source(null, jar, entry, referenced));
+          }
+        }
+      }
+      if (discoverers.decrementAndGet() == 0) {
+        for (int i = 0; i < readerCount(); i++) sources.put(END_OF_SOURCES);
+      }
+    }
+
+    private void evaluate(Read read) throws IOException {
+      ClassFile file = ClassFile.read(new ByteArrayInputStream(read.bytes));
+      if (read.referenced != null) read.referenced.addAll(file.getReferencedTypes());
+      List<AnnotationMatcher<?, ?>> relevant = new ArrayList<>();
+      for (String referenced : file.getReferencedTypes())
+        relevant.addAll(matchers.getOrDefault(referenced, Collections.emptyList()));
+      if (!relevant.isEmpty()) evaluateClass(loader, file.getName(), relevant, results);
+    }
+
+    private void fail(Throwable cause) {
+      if (failure.compareAndSet(null, cause)) {
+        io.shutdownNow();
+        cpu.shutdownNow();
+      }
+    }
+
+    private void match() throws IOException, InterruptedException {
+      for (Read read = reads.take(); read != END_OF_READS; read = reads.take()) evaluate(read);
+    }
+
+    private void read() throws IOException, InterruptedException {
+      for (Source source = sources.take(); source != END_OF_SOURCES; source = sources.take())
+        reads.put(new Read(source.read(), source.referenced));
+      if (readers.decrementAndGet() == 0) {
+        for (int i = 0; i < workers; i++) reads.put(END_OF_READS);
+      }
+    }
+
+    private AnnotationRuleReport report() {
+      Throwable cause = failure.get();
+      if (cause instanceof IOException) throw new UncheckedIOException((IOException) cause);
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      if (cause != null) throw new IllegalStateException("Scan did not complete", cause);
+      // only a complete scan has seen every class of the jars it summarises
+      summaries.forEach(AnnotationBloomFilter::remember);
+      return results.report();
+    }
+
+    private void submit(ExecutorService executor, Stage stage) {
+      try {
+        futures.add(
+            executor.submit(
+                () -> {
+                  try {
+                    stage.run();
+                  } catch (Throwable t) {
+                    fail(t);
+                  }
+                }));
+      } catch (RejectedExecutionException e) {
+        // an earlier stage already failed and stopped the pipeline
+      }
+    }
+  }
+
+  private final int queueCapacity;
+
+  private final int workers;
+
+  // by annotation type name, as the class file pre-filter sees them
+  private final Map<String, List<AnnotationMatcher<?, ?>>> matchers = new HashMap<>();
+
+  public AnnotationScanPipeline(Collection<? extends AnnotationMatcher<?, ?>> matchers) {
+    this(DEFAULT_QUEUE_CAPACITY, Runtime.getRuntime().availableProcessors(), matchers);
+  }
+
+  public AnnotationScanPipeline(
+      int queueCapacity, int workers, Collection<? extends AnnotationMatcher<?, ?>> matchers) {
+    if (queueCapacity < 1)
+      throw new IllegalArgumentException(
+          String.format("Queue capacity must be positive but was %d", queueCapacity));
+    if (workers < 1)
+      throw new IllegalArgumentException(
+          String.format("Workers must be positive but was %d", workers));
+    this.queueCapacity = queueCapacity;
+    this.workers = workers;
+    for (AnnotationMatcher<?, ?> matcher : matchers)
+      this.matchers
+          .computeIfAbsent(
+              matcher.getExpected().getAnnotationClass().getName(), name -> new ArrayList<>())
+          .add(matcher);
+  }
+
+  public AnnotationRuleReport scan(ClassLoader loader, Path... roots) {
+    if (roots.length == 0)
+      return new AnnotationRuleReport(0, Collections.emptyList(), Collections.emptyList());
+    Run run = new Run(loader, roots.length);
+    for (Path root : roots) run.submit(run.io, () -> run.discover(root));
+    for (int i = 0; i < readerCount(); i++) run.submit(run.io, run::read);
+    for (int i = 0; i < workers; i++) run.submit(run.cpu, run::match);
+    run.await();
+    return run.report();
+  }
+
+  // takes the classes to check from a compile time index instead of reading the roots, loading
+  // only those the index lists with one of the matchers' annotations
+  public AnnotationRuleReport scan(ClassLoader loader, AnnotationIndex index) {
+    Map<String, List<AnnotationMatcher<?, ?>>> relevant = new TreeMap<>();
+    for (List<AnnotationMatcher<?, ?>> group : matchers.values()) {
+      Class<? extends Annotation> type = group.get(0).getExpected().getAnnotationClass();
+      for (String name : index.getClassesAnnotatedWith(type))
+        relevant.computeIfAbsent(name, key -> new ArrayList<>()).addAll(group);
+    }
+    Results results = new Results();
+    relevant.entrySet().parallelStream()
+        .forEach(entry -> evaluateClass(loader, entry.getKey(), entry.getValue(), results));
+    return results.report();
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private void check(AnnotationMatcher matcher, Class<?> type, List<Violation> violations) {
+    if (Boolean.FALSE.equals(matcher.matchesIfPresent(type)))
+      violations.add(Violation.of(matcher, type));
+  }
+
+  // a class whose annotations cannot be read counts as unloadable, as one that cannot be loaded
+  private void evaluateClass(
+      ClassLoader loader, String name, List<AnnotationMatcher<?, ?>> relevant, Results results) {
+    List<Violation> violations = new ArrayList<>();
+    try {
+      Class<?> type = Class.forName(name, false, loader);
+      for (AnnotationMatcher<?, ?> matcher : relevant) check(matcher, type, violations);
+    } catch (ClassNotFoundException
+        | LinkageError
+        | TypeNotPresentException
+        | AnnotationFormatError e) {
+      results.unloadable.add(name);
+      return;
+    }
+    results.violations.addAll(violations);
+    results.evaluated.incrementAndGet();
+  }
+
+  // reads are mostly waiting, so there are more of them than there are cores to match with
+  private int readerCount() {
+    return 2 * workers;
+  }
+
+  private static void close(JarFile jar) {
+    try {
+      jar.close();
+    } catch (IOException e) {
+      // nothing more is read from it
+    }
+  }
+
+  private static Thread daemon(Runnable task) {
+    Thread thread = new Thread(task, "annotation-scan");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private static ExecutorService ioExecutor(int threads) {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      // before Java 21 every blocking task gets a platform thread of its own
+      return Executors.newFixedThreadPool(threads, AnnotationScanPipeline::daemon);
+    }
+  }
+}
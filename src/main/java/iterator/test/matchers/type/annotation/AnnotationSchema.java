@@ -0,0 +1,318 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import static java.util.Collections.unmodifiableSet;
+
+import iterator.test.matchers.type.annotation.AnnotationMap.MemberValueFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@SuppressWarnings("unchecked")
+final class AnnotationSchema<A extends Annotation> {
+
+  // one loader's providers by annotation type, and the error that cut their lookup short, if any
+  private static final class Providers {
+
+    private final Map<Class<?>, AnnotationMetadata<?>> byType = new HashMap<>();
+
+    private ServiceConfigurationError failure;
+  }
+
+  private static final ClassValue<AnnotationSchema<?>> SCHEMAS =
+      new ClassValue<AnnotationSchema<?>>() {
+
+        @Override
+        protected AnnotationSchema<?> computeValue(Class<?> type) {
+          Metrics.missed(AnnotationMetrics.ANNOTATION_SCHEMA, (Class<Annotation>) type, type);
+          return create(
+              (Class<Annotation>) type,
+              (AnnotationMetadata<Annotation>) metadata(type),
+              REFLECTION_FREE,
+              ADAPTIVE);
+        }
+      };
+
+  // held softly, as providers reference their own loader and would keep the weak key reachable
+  private static final Map<ClassLoader, SoftReference<Providers>> PROVIDERS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  // relative cost of comparing one member, by kind of member value
+  private static final int SCALAR_COST = 1;
+
+  private static final int REFERENCE_COST = 2;
+
+  private static final int ARRAY_COST = 8;
+
+  private static final int ANNOTATION_COST = 32;
+
+  // off unless asked for, as ranking by observed differences lets every comparison reorder the
+  // schema the whole jvm shares
+  private static final boolean ADAPTIVE =
+      Boolean.getBoolean("iterator.test.matchers.adaptiveComparisonOrder");
+
+  static final String REFLECTION_FREE_PROPERTY = "iterator.test.matchers.reflectionFree";
+
+  // members are then only ever read through generated metadata, as ahead of time images need
+  private static final boolean REFLECTION_FREE = Boolean.getBoolean(REFLECTION_FREE_PROPERTY);
+
+  static <A extends Annotation> AnnotationSchema<A> of(Class<A> annotationType) {
+    Metrics.accessed(AnnotationMetrics.ANNOTATION_SCHEMA, annotationType, annotationType);
+    return (AnnotationSchema<A>) SCHEMAS.get(annotationType);
+  }
+
+  private final Class<A> annotationType;
+
+  // fingerprints hash the type and member names, which never change, so they are hashed once here
+  private final long typeHash;
+
+  private final String[] names;
+
+  private final long[] nameHashes;
+
+  // exactly one of these reads member values, generated metadata being preferred when registered
+  private final Method[] accessors;
+
+  private final AnnotationMetadata<A> metadata;
+
+  private final Class<?>[] types;
+
+  private final Object[] defaults;
+
+  private final MemberValueFactory[] factories;
+
+  private final Map<String, Integer> indices = new HashMap<>();
+
+  private final Set<String> memberNames;
+
+  private final int[] costs;
+
+  private final AtomicLongArray differences;
+
+  private final boolean adaptive;
+
+  private volatile int[] comparisonOrder;
+
+  private AnnotationSchema(
+      Class<A> annotationType, AnnotationMetadata<A> metadata, boolean adaptive) {
+    this.annotationType = annotationType;
+    this.metadata = metadata;
+    this.adaptive = adaptive;
+    if (metadata != null) {
+      accessors = null;
+      names = metadata.memberNames();
+      types = metadata.memberTypes();
+      defaults = metadata.memberDefaults();
+      checkOrdered(names);
+    } else {
+      // schema order is member name order, which keeps fingerprints independent of the jvm
+      accessors = annotationType.getDeclaredMethods();
+      Arrays.sort(accessors, Comparator.comparing(Method::getName));
+      names = new String[accessors.length];
+      types = new Class<?>[accessors.length];
+      defaults = new Object[accessors.length];
+      for (int i = 0; i < accessors.length; i++) {
+        Method accessor = accessors[i];
+        accessor.trySetAccessible();
+        names[i] = accessor.getName();
+        types[i] = accessor.getReturnType();
+        defaults[i] = accessor.getDefaultValue();
+      }
+    }
+    int size = names.length;
+    typeHash = Fingerprint.hash(annotationType.getName());
+    nameHashes = new long[size];
+    factories = new MemberValueFactory[size];
+    costs = new int[size];
+    for (int i = 0; i < size; i++) {
+      nameHashes[i] = Fingerprint.hash(names[i]);
+      factories[i] = MemberValueFactory.forType(types[i]);
+      costs[i] = cost(types[i]);
+      indices.put(names[i], i);
+    }
+    memberNames = unmodifiableSet(new LinkedHashSet<>(Arrays.asList(names)));
+    differences = new AtomicLongArray(size);
+    comparisonOrder = order();
+  }
+
+  static <A extends Annotation> AnnotationSchema<A> create(
+      Class<A> annotationType,
+      AnnotationMetadata<A> metadata,
+      boolean reflectionFree,
+      boolean adaptive) {
+    if (metadata == null && reflectionFree)
+      throw new IllegalStateException(
+          String.format(
+              "No generated metadata for @%s with %s set, name it in @GenerateAnnotationMaps",
+              annotationType.getName(), REFLECTION_FREE_PROPERTY),
+          failure(annotationType));
+    return new AnnotationSchema<>(annotationType, metadata, adaptive);
+  }
+
+  private static void checkOrdered(String[] names) {
+    for (int i = 1; i < names.length; i++) {
+      if (names[i - 1].compareTo(names[i]) >= 0)
+        throw new IllegalStateException(
+            String.format("Annotation metadata members out of order: %s", Arrays.toString(names)));
+    }
+  }
+
+  private static int cost(Class<?> type) {
+    if (type.isPrimitive()) return SCALAR_COST;
+    if (type.isAnnotation()) return ANNOTATION_COST;
+    if (!type.isArray()) return REFERENCE_COST;
+    Class<?> component = type.getComponentType();
+    return component.isAnnotation() ? ANNOTATION_COST : ARRAY_COST;
+  }
+
+  // why metadata may be missing, for reflection free mode, which has no reflection to fall back to
+  private static ServiceConfigurationError failure(Class<?> type) {
+    ClassLoader loader = type.getClassLoader();
+    ServiceConfigurationError failure = loader != null ? providers(loader).failure : null;
+    ClassLoader context = Thread.currentThread().getContextClassLoader();
+    return failure == null && context != null && context != loader
+        ? providers(context).failure
+        : failure;
+  }
+
+  // the annotation's own loader is searched first, then the context loader for metadata generated
+  // alongside the tests rather than the annotation type
+  private static AnnotationMetadata<?> metadata(Class<?> type) {
+    ClassLoader loader = type.getClassLoader();
+    AnnotationMetadata<?> found = loader != null ? metadata(type, loader) : null;
+    ClassLoader context = Thread.currentThread().getContextClassLoader();
+    return found == null && context != null && context != loader ? metadata(type, context) : found;
+  }
+
+  private static AnnotationMetadata<?> metadata(Class<?> type, ClassLoader loader) {
+    return providers(loader).byType.get(type);
+  }
+
+  // each loader's providers are instantiated and indexed by annotation type once
+  private static Providers providers(ClassLoader loader) {
+    SoftReference<Providers> cached = PROVIDERS.get(loader);
+    Providers providers = cached != null ? cached.get() : null;
+    if (providers == null) {
+      providers = new Providers();
+      try {
+        for (AnnotationMetadata<?> metadata : ServiceLoader.load(AnnotationMetadata.class, loader))
+          providers.byType.putIfAbsent(metadata.annotationType(), metadata);
+      } catch (ServiceConfigurationError e) {
+        // a broken registration leaves the types to reflection rather than failing every match,
+        // but is kept to explain a type reflection free mode finds no metadata for
+        providers.failure = e;
+      }
+      PROVIDERS.put(loader, new SoftReference<>(providers));
+    }
+    return providers;
+  }
+
+  Class<A> getAnnotationType() {
+    return annotationType;
+  }
+
+  // member indices cheapest and most often different first, so mismatches are found early
+  int[] getComparisonOrder() {
+    return comparisonOrder;
+  }
+
+  Object getDefault(int index) {
+    return defaults[index];
+  }
+
+  MemberValueFactory getFactory(int index) {
+    return factories[index];
+  }
+
+  Set<String> getMemberNames() {
+    return memberNames;
+  }
+
+  String getName(int index) {
+    return names[index];
+  }
+
+  long getNameHash(int index) {
+    return nameHashes[index];
+  }
+
+  Class<?> getType(int index) {
+    return types[index];
+  }
+
+  long getTypeHash() {
+    return typeHash;
+  }
+
+  Object getValue(Annotation annotation, int index) {
+    if (metadata != null) return metadata.memberValue((A) annotation, index);
+    try {
+      return accessors[index].invoke(annotation);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException(
+          String.format("Failed to read member '%s' of %s", names[index], annotation),
+          e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(
+          String.format("Cannot access member '%s' of %s", names[index], annotation), e);
+    }
+  }
+
+  boolean isReflective() {
+    return metadata == null;
+  }
+
+  int indexOf(String name) {
+    Integer index = indices.get(name);
+    return index != null ? index : -1;
+  }
+
+  void recordDifference(int index) {
+    if (!adaptive) return;
+    long count = differences.incrementAndGet(index);
+    // re-rank only when a counter reaches a power of two, so steady state costs one increment
+    if ((count & (count - 1)) == 0) comparisonOrder = order();
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  private int[] order() {
+    Integer[] order = new Integer[names.length];
+    double[] weights = new double[names.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+      weights[i] = (double) costs[i] / (1 + differences.get(i));
+    }
+    Arrays.sort(order, Comparator.comparingDouble(i -> weights[i]));
+    return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+  }
+}
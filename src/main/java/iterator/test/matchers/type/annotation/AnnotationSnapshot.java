@@ -0,0 +1,319 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// golden file snapshots of the annotation surface of classes, written and compared one class at a
+// time so memory stays flat however many classes are streamed through
+public final class AnnotationSnapshot {
+
+  private static final class Entry implements Comparable<Entry> {
+
+    private final String element;
+
+    private final String annotationType;
+
+    private final String rendered;
+
+    private Entry(String element, String annotationType, String rendered) {
+      this.element = element;
+      this.annotationType = annotationType;
+      this.rendered = rendered;
+    }
+
+    @Override
+    public int compareTo(Entry other) {
+      int result = element.compareTo(other.element);
+      return result != 0 ? result : annotationType.compareTo(other.annotationType);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Entry && compareTo((Entry) obj) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return element.hashCode() * 31 + annotationType.hashCode();
+    }
+  }
+
+  // the gzip streams are closed to free their native zlib state at once, but the caller's stream
+  // is left open for the caller to close
+  private static final class KeptOpenInputStream extends FilterInputStream {
+
+    private KeptOpenInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static final class KeptOpenOutputStream extends FilterOutputStream {
+
+    private KeptOpenOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+  }
+
+  private static final class SnapshotReader implements Closeable {
+
+    private final BufferedReader reader;
+
+    private String line;
+
+    private SnapshotReader(InputStream in) throws IOException {
+      GZIPInputStream zip = new GZIPInputStream(new KeptOpenInputStream(in));
+      reader = new BufferedReader(new InputStreamReader(zip, UTF_8));
+      try {
+        if (!HEADER.equals(reader.readLine())) throw new IOException("Not an annotation snapshot");
+        line = reader.readLine();
+      } catch (IOException | RuntimeException e) {
+        reader.close();
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+
+    private boolean hasNext() {
+      return line != null;
+    }
+
+    private String nextClassName() {
+      return line;
+    }
+
+    private List<Entry> nextEntries() throws IOException {
+      List<Entry> entries = new ArrayList<>();
+      while ((line = reader.readLine()) != null && line.startsWith(INDENT)) {
+        String[] parts = line.substring(INDENT.length()).split(SEPARATOR, 3);
+        if (parts.length != 3)
+          throw new IOException(String.format("Malformed snapshot entry: '%s'", line));
+        entries.add(new Entry(parts[0], parts[1], unescape(parts[2])));
+      }
+      return entries;
+    }
+  }
+
+  private static final class SortedIterator implements Iterator<Class<?>> {
+
+    private final Iterator<? extends Class<?>> classes;
+
+    private String previous;
+
+    private SortedIterator(Iterator<? extends Class<?>> classes) {
+      this.classes = classes;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return classes.hasNext();
+    }
+
+    @Override
+    public Class<?> next() {
+      Class<?> type = classes.next();
+      if (previous != null && previous.compareTo(type.getName()) >= 0)
+        throw new IllegalArgumentException(
+            String.format(
+                "Classes must be in ascending name order but '%s' followed '%s'",
+                type.getName(), previous));
+      previous = type.getName();
+      return type;
+    }
+  }
+
+  private static final String HEADER = "# annotation snapshot 1";
+
+  private static final String INDENT = "\t";
+
+  private static final String SEPARATOR = "\t";
+
+  private static final String NONE = "null";
+
+  private AnnotationSnapshot() {}
+
+  public static long compare(
+      InputStream snapshot, Iterable<? extends Class<?>> classes, Consumer<String> differences)
+      throws IOException {
+    try (SnapshotReader expected = new SnapshotReader(snapshot)) {
+      Iterator<? extends Class<?>> actual = new SortedIterator(classes.iterator());
+      Class<?> type = actual.hasNext() ? actual.next() : null;
+      long count = 0;
+      while (expected.hasNext() || type != null) {
+        int order =
+            !expected.hasNext()
+                ? 1
+                : type == null ? -1 : expected.nextClassName().compareTo(type.getName());
+        if (order < 0) {
+          String className = expected.nextClassName();
+          count += diff(className, expected.nextEntries(), Collections.emptyList(), differences);
+        } else if (order > 0) {
+          count += diff(type.getName(), Collections.emptyList(), entries(type), differences);
+          type = actual.hasNext() ? actual.next() : null;
+        } else {
+          count += diff(type.getName(), expected.nextEntries(), entries(type), differences);
+          type = actual.hasNext() ? actual.next() : null;
+        }
+      }
+      return count;
+    }
+  }
+
+  public static void write(Iterable<? extends Class<?>> classes, OutputStream out)
+      throws IOException {
+    // closing the writer finishes the gzip stream and ends its deflater, but leaves out open
+    try (Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(new GZIPOutputStream(new KeptOpenOutputStream(out)), UTF_8))) {
+      writer.write(HEADER);
+      writer.write('\n');
+      for (Iterator<? extends Class<?>> it = new SortedIterator(classes.iterator());
+          it.hasNext(); ) {
+        Class<?> type = it.next();
+        writer.write(type.getName());
+        writer.write('\n');
+        for (Entry entry : entries(type)) {
+          writer.write(INDENT);
+          writer.write(entry.element);
+          writer.write(SEPARATOR);
+          writer.write(entry.annotationType);
+          writer.write(SEPARATOR);
+          writer.write(escape(entry.rendered));
+          writer.write('\n');
+        }
+      }
+    }
+  }
+
+  private static void add(List<Entry> entries, String element, AnnotatedElement annotated) {
+    for (Annotation annotation : annotated.getDeclaredAnnotations()) {
+      entries.add(
+          new Entry(
+              element,
+              annotation.annotationType().getName(),
+              AnnotationMap.of(annotation).toString()));
+    }
+  }
+
+  private static long diff(
+      String className, List<Entry> expected, List<Entry> actual, Consumer<String> differences) {
+    long count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < expected.size() || j < actual.size()) {
+      Entry exp = i < expected.size() ? expected.get(i) : null;
+      Entry act = j < actual.size() ? actual.get(j) : null;
+      int order = exp == null ? 1 : act == null ? -1 : exp.compareTo(act);
+      if (order < 0) {
+        differences.accept(describe(className, exp, exp.rendered, NONE));
+        i++;
+        count++;
+      } else if (order > 0) {
+        differences.accept(describe(className, act, NONE, act.rendered));
+        j++;
+        count++;
+      } else {
+        if (!exp.rendered.equals(act.rendered)) {
+          differences.accept(describe(className, exp, exp.rendered, act.rendered));
+          count++;
+        }
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  private static String describe(String className, Entry entry, String expected, String actual) {
+    return String.format(
+        "%s %s: expected %s but was %s", className, entry.element, expected, actual);
+  }
+
+  private static List<Entry> entries(Class<?> type) {
+    List<Entry> entries = new ArrayList<>();
+    add(entries, "type", type);
+    for (Field field : type.getDeclaredFields()) {
+      if (!field.isSynthetic()) add(entries, "field " + field.getName(), field);
+    }
+    for (Method method : type.getDeclaredMethods()) {
+      if (!method.isSynthetic() && !method.isBridge())
+        add(
+            entries,
+            "method " + MemberTable.signature(method.getName(), method.getParameterTypes()),
+            method);
+    }
+    Collections.sort(entries);
+    return entries;
+  }
+
+  private static String escape(String str) {
+    return str.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+  }
+
+  private static String unescape(String str) {
+    StringBuilder sb = new StringBuilder(str.length());
+    for (int i = 0; i < str.length(); i++) {
+      char ch = str.charAt(i);
+      if (ch == '\\' && i + 1 < str.length()) {
+        char next = str.charAt(++i);
+        sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+      } else {
+        sb.append(ch);
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import iterator.test.matchers.type.annotation.AnnotationRuleReport.Violation;
+
+import java.lang.annotation.Annotation;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Evaluates batches of expectations on an executor, a chunk per task, and completes with every
+// mismatch in batch order. Cancelling the returned future, or letting it time out, stops chunks
+// that have not started and those in progress at their next expectation.
+public final class AsyncAnnotationEvaluator {
+
+  public static final int DEFAULT_CHUNK_SIZE = 256;
+
+  public static final class Expectation {
+
+    public static Expectation of(Class<?> type, AnnotationMatcher<?, ?> matcher) {
+      return new Expectation(type, matcher);
+    }
+
+    public static <A extends Annotation> Expectation of(Class<?> type, AnnotationMap<A> expected) {
+      return of(type, new TypeAnnotationMatcher<>(expected));
+    }
+
+    private final Class<?> type;
+
+    private final AnnotationMatcher<?, ?> matcher;
+
+    private Expectation(Class<?> type, AnnotationMatcher<?, ?> matcher) {
+      this.type = type;
+      this.matcher = matcher;
+    }
+
+    public AnnotationMatcher<?, ?> getMatcher() {
+      return matcher;
+    }
+
+    public Class<?> getType() {
+      return type;
+    }
+
+    private void evaluate(List<Violation> violations) {
+      if (!matcher.matches(type)) violations.add(Violation.of(matcher, type));
+    }
+  }
+
+  private final Executor executor;
+
+  private final int chunkSize;
+
+  public AsyncAnnotationEvaluator(Executor executor) {
+    this(executor, DEFAULT_CHUNK_SIZE);
+  }
+
+  public AsyncAnnotationEvaluator(Executor executor, int chunkSize) {
+    if (chunkSize < 1)
+      throw new IllegalArgumentException(
+          String.format("Chunk size must be positive but was %d", chunkSize));
+    this.executor = executor;
+    this.chunkSize = chunkSize;
+  }
+
+  public CompletableFuture<AnnotationRuleReport> evaluate(Collection<Expectation> batch) {
+    List<Expectation> expectations = new ArrayList<>(batch);
+    AtomicBoolean stopped = new AtomicBoolean();
+    List<CompletableFuture<List<Violation>>> chunks = new ArrayList<>();
+    for (int from = 0; from < expectations.size(); from += chunkSize) {
+      List<Expectation> chunk =
+          expectations.subList(from, Math.min(from + chunkSize, expectations.size()));
+      chunks.add(CompletableFuture.supplyAsync(() -> evaluateChunk(chunk, stopped), executor));
+    }
+    CompletableFuture<AnnotationRuleReport> report = new CompletableFuture<>();
+    CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+        .whenComplete(
+            (ignored, failure) -> {
+              if (failure != null) {
+                report.completeExceptionally(unwrap(failure));
+                return;
+              }
+              List<Violation> violations = new ArrayList<>();
+              chunks.forEach(chunk -> violations.addAll(chunk.join()));
+              // a class may be named by several expectations, but is counted once
+              int classes =
+                  (int) expectations.stream().map(Expectation::getType).distinct().count();
+              report.complete(
+                  new AnnotationRuleReport(classes, violations, Collections.emptyList()));
+            });
+    // a cancelled, timed out or failed batch leaves nothing for the remaining chunks to do
+    report.whenComplete(
+        (ignored, failure) -> {
+          if (failure == null) return;
+          stopped.set(true);
+          chunks.forEach(chunk -> chunk.cancel(false));
+        });
+    return report;
+  }
+
+  public CompletableFuture<AnnotationRuleReport> evaluate(
+      Collection<Expectation> batch, Duration timeout) {
+    return evaluate(batch).orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  private static List<Violation> evaluateChunk(List<Expectation> chunk, AtomicBoolean stopped) {
+    List<Violation> violations = new ArrayList<>();
+    for (Expectation expectation : chunk) {
+      if (stopped.get()) throw new CancellationException("Batch stopped");
+      expectation.evaluate(violations);
+    }
+    return violations;
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause()
+        : failure;
+  }
+}
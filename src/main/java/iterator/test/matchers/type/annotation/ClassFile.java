@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// reads just enough of a class file, its constant pool and name, to tell which types it refers to
+// without loading it
+final class ClassFile {
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  static ClassFile read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) throw new IOException("Not a class file");
+    data.readUnsignedShort(); // minor version
+    data.readUnsignedShort(); // major version
+    int count = data.readUnsignedShort();
+    String[] utf8 = new String[count];
+    int[] classNameIndices = new int[count];
+    for (int i = 1; i < count; i++) {
+      int tag = data.readUnsignedByte();
+      switch (tag) {
+        case 1: // utf8
+          utf8[i] = data.readUTF();
+          break;
+        case 7: // class
+          classNameIndices[i] = data.readUnsignedShort();
+          break;
+        case 8: // string
+        case 16: // method type
+        case 19: // module
+        case 20: // package
+          data.skipBytes(2);
+          break;
+        case 15: // method handle
+          data.skipBytes(3);
+          break;
+        case 3: // integer
+        case 4: // float
+        case 9: // field ref
+        case 10: // method ref
+        case 11: // interface method ref
+        case 12: // name and type
+        case 17: // dynamic
+        case 18: // invoke dynamic
+          data.skipBytes(4);
+          break;
+        case 5: // long
+        case 6: // double
+          data.skipBytes(8);
+          i++; // eight byte constants take two slots
+          break;
+        default:
+          throw new IOException(String.format("Unknown constant pool tag %d at %d", tag, i));
+      }
+    }
+    data.readUnsignedShort(); // access flags
+    String name = utf8[classNameIndices[data.readUnsignedShort()]].replace('/', '.');
+    Set<String> referencedTypes = new LinkedHashSet<>();
+    for (String str : utf8) {
+      // annotations refer to their type by a field descriptor such as Ljava/lang/Deprecated;
+      if (str != null && isObjectDescriptor(str))
+        referencedTypes.add(str.substring(1, str.length() - 1).replace('/', '.'));
+    }
+    return new ClassFile(name, referencedTypes);
+  }
+
+  private static boolean isObjectDescriptor(String str) {
+    int last = str.length() - 1;
+    return last > 1
+        && str.charAt(0) == 'L'
+        && str.charAt(last) == ';'
+        && str.indexOf(';') == last
+        && str.indexOf('<') < 0
+        && str.indexOf('(') < 0;
+  }
+
+  private final String name;
+
+  private final Set<String> referencedTypes;
+
+  private ClassFile(String name, Set<String> referencedTypes) {
+    this.name = name;
+    this.referencedTypes = Collections.unmodifiableSet(referencedTypes);
+  }
+
+  String getName() {
+    return name;
+  }
+
+  // a superset of the annotation types used in the class, as binary names
+  Set<String> getReferencedTypes() {
+    return referencedTypes;
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// class names found in directories and jars, shared by everything that scans without a classpath
+final class ClassRoots {
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  static String className(String path) {
+    return path.substring(0, path.length() - CLASS_SUFFIX.length()).replace('/', '.');
+  }
+
+  // lazily, holding the directory walk or the jar open until the stream is closed
+  static Stream<String> classNameStream(Path root) {
+    try {
+      if (Files.isDirectory(root)) {
+        return Files.walk(root)
+            .map(path -> entryName(root, path))
+            .filter(ClassRoots::isClass)
+            .map(ClassRoots::className);
+      }
+      JarFile jar = new JarFile(root.toFile());
+      return jar.stream()
+          .map(JarEntry::getName)
+          .filter(ClassRoots::isClass)
+          .map(ClassRoots::className)
+          .onClose(() -> close(jar));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static List<String> classNames(Path root) {
+    try (Stream<String> names = classNameStream(root)) {
+      return names.collect(Collectors.toList());
+    }
+  }
+
+  // a path under a directory root, named as it would be in a jar
+  static String entryName(Path root, Path path) {
+    return root.relativize(path).toString().replace(root.getFileSystem().getSeparator(), "/");
+  }
+
+  static boolean isClass(String path) {
+    return path.endsWith(CLASS_SUFFIX)
+        && !path.startsWith("META-INF/")
+        && !path.endsWith("module-info.class")
+        && !path.endsWith("package-info.class");
+  }
+
+  static URL[] urls(Path... roots) {
+    URL[] urls = new URL[roots.length];
+    try {
+      for (int i = 0; i < roots.length; i++) urls[i] = roots[i].toUri().toURL();
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException(e);
+    }
+    return urls;
+  }
+
+  private static void close(JarFile jar) {
+    try {
+      jar.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private ClassRoots() {}
+}
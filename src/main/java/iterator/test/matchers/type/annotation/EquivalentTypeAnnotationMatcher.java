@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import iterator.Reflection;
+
+import java.lang.annotation.Annotation;
+import java.util.Objects;
+
+import org.hamcrest.Description;
+import org.hamcrest.TypeSafeMatcher;
+
+// Matches classes carrying the same type annotation as a reference class. The two live instances
+// are compared member by member through the schema, no map is built unless a mismatch is described.
+public class EquivalentTypeAnnotationMatcher<A extends Annotation, T>
+    extends TypeSafeMatcher<Class<T>> {
+
+  private final Class<A> annotationType;
+
+  private final Class<?> reference;
+
+  private final AnnotationSchema<A> schema;
+
+  private final A expected;
+
+  // read once, as every item is compared with the same reference
+  private final Object[] expectedValues;
+
+  private volatile FailedMatch<A> failed;
+
+  public EquivalentTypeAnnotationMatcher(Class<A> annotationType, Class<?> reference) {
+    this.annotationType = annotationType;
+    this.reference = reference;
+    schema = AnnotationSchema.of(annotationType);
+    expected = find(reference);
+    if (expected == null)
+      throw new IllegalArgumentException(
+          String.format(
+              "Reference %s has no @%s", reference.getName(), annotationType.getSimpleName()));
+    expectedValues = new Object[schema.size()];
+    for (int i = 0; i < expectedValues.length; i++)
+      expectedValues[i] = schema.getValue(expected, i);
+  }
+
+  @Override
+  public void describeTo(Description description) {
+    description.appendText(
+        String.format("%s as on %s", AnnotationMap.of(expected), reference.getName()));
+  }
+
+  @Override
+  protected void describeMismatchSafely(Class<T> item, Description mismatchDescription) {
+    A actual = FailedMatch.of(failed, item);
+    if (actual == null) actual = find(item);
+    mismatchDescription.appendText(
+        actual != null
+            ? AnnotationMap.of(expected).diff(AnnotationMap.of(actual)).toString()
+            : String.valueOf(actual));
+  }
+
+  @Override
+  protected boolean matchesSafely(Class<T> item) {
+    AnnotationMetrics metrics = Metrics.current;
+    long start = metrics != AnnotationMetrics.NOOP ? System.nanoTime() : 0;
+    AnnotationEvents.MatcherEvaluation event = new AnnotationEvents.MatcherEvaluation();
+    event.begin();
+    A actual = find(item);
+    boolean matches = actual != null && (actual == expected || isEquivalent(actual));
+    if (!matches && actual != null) failed = new FailedMatch<>(item, actual);
+    event.end();
+    if (event.shouldCommit()) {
+      event.annotationType = annotationType;
+      event.target = item;
+      event.matched = matches;
+      event.commit();
+    }
+    if (metrics != AnnotationMetrics.NOOP)
+      metrics.evaluated(annotationType, item, matches, System.nanoTime() - start);
+    return matches;
+  }
+
+  private A find(Class<?> type) {
+    return AnnotationPresence.onType(type, annotationType)
+        ? Reflection.findTypeAnnotation(type, annotationType)
+        : null;
+  }
+
+  private boolean isEquivalent(A actual) {
+    for (int i : schema.getComparisonOrder()) {
+      if (!Objects.deepEquals(expectedValues[i], schema.getValue(actual, i))) {
+        schema.recordDifference(i);
+        return false;
+      }
+    }
+    return true;
+  }
+}
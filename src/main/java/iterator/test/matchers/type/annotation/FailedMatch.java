@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.ref.WeakReference;
+
+// what a failed match found, kept by the matcher for describing the mismatch that follows; the
+// item is held weakly and each matcher keeps only its latest failure
+final class FailedMatch<V> {
+
+  static <V> V of(FailedMatch<V> failed, Class<?> item) {
+    return failed != null && failed.item.get() == item ? failed.found : null;
+  }
+
+  private final WeakReference<Class<?>> item;
+
+  private final V found;
+
+  FailedMatch(Class<?> item, V found) {
+    this.item = new WeakReference<>(item);
+    this.found = found;
+  }
+}
@@ -30,6 +30,14 @@ public class FieldAnnotationMatcher<A extends Annotation, T> extends AnnotationM
 
   @Override
   protected A findAnnotation(Class<T> item) {
-    return Reflection.findFieldAnnotation(item, fieldName, getExpected().getAnnotationClass());
+    Class<A> type = getExpected().getAnnotationClass();
+    return AnnotationPresence.onFields(item, type)
+        ? Reflection.findFieldAnnotation(item, fieldName, type)
+        : null;
+  }
+
+  @Override
+  String element() {
+    return String.format("field '%s'", fieldName);
   }
 }
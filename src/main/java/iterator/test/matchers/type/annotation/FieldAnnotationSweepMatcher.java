@@ -0,0 +1,124 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Predicate;
+
+import org.hamcrest.Description;
+import org.hamcrest.TypeSafeMatcher;
+
+public class FieldAnnotationSweepMatcher<T> extends TypeSafeMatcher<Class<T>> {
+
+  private static final class Offence {
+
+    // names rather than the field, which would hold on to its class
+    private final String name;
+
+    private final String owner;
+
+    private final AnnotationMap<?> expected;
+
+    private final Annotation actual;
+
+    private Offence(Field field, AnnotationMap<?> expected, Annotation actual) {
+      this.name = field.getName();
+      this.owner = field.getDeclaringClass().getSimpleName();
+      this.expected = expected;
+      this.actual = actual;
+    }
+
+    @Override
+    public String toString() {
+      if (actual == null) return String.format("field '%s' of %s was null", name, owner);
+      AnnotationMapDiff diff =
+          expected.difference(AnnotationMap.of(actual), AnnotationMapDiff.DEFAULT_LIMIT);
+      return String.format("field '%s' of %s differed %s", name, owner, diff);
+    }
+  }
+
+  private final Predicate<? super Field> selector;
+
+  private final List<AnnotationMap<?>> expected;
+
+  private volatile FailedMatch<List<Offence>> failed;
+
+  public FieldAnnotationSweepMatcher(
+      Predicate<? super Field> selector, AnnotationMap<?>... expected) {
+    this(selector, Arrays.asList(expected));
+  }
+
+  public FieldAnnotationSweepMatcher(
+      Predicate<? super Field> selector, Collection<? extends AnnotationMap<?>> expected) {
+    if (expected.isEmpty())
+      throw new IllegalArgumentException("At least one expected annotation is required");
+    this.selector = selector;
+    this.expected = new ArrayList<>(expected);
+  }
+
+  @Override
+  public void describeTo(Description description) {
+    StringJoiner joiner = new StringJoiner(" and ", "every selected field annotated with ", "");
+    expected.forEach(map -> joiner.add(map.toString()));
+    description.appendText(joiner.toString());
+  }
+
+  @Override
+  protected void describeMismatchSafely(Class<T> item, Description mismatchDescription) {
+    AnnotationMetrics metrics = Metrics.current;
+    List<Offence> offences = FailedMatch.of(failed, item);
+    if (offences == null) offences = sweep(item, AnnotationMetrics.NOOP);
+    StringJoiner joiner = new StringJoiner(", ");
+    for (Offence offence : offences) {
+      long start = metrics != AnnotationMetrics.NOOP ? System.nanoTime() : 0;
+      joiner.add(offence.toString());
+      if (metrics != AnnotationMetrics.NOOP)
+        metrics.mismatchDescribed(offence.expected.getAnnotationClass(), System.nanoTime() - start);
+    }
+    mismatchDescription.appendText(joiner.toString());
+  }
+
+  @Override
+  protected boolean matchesSafely(Class<T> item) {
+    List<Offence> offences = sweep(item, Metrics.current);
+    if (offences.isEmpty()) return true;
+    failed = new FailedMatch<>(item, offences);
+    return false;
+  }
+
+  // each selected field is reported as one evaluation per expected annotation
+  private List<Offence> sweep(Class<T> item, AnnotationMetrics metrics) {
+    List<Offence> offences = new ArrayList<>();
+    for (Field field : MemberTable.of(item).fields()) {
+      if (!selector.test(field)) continue;
+      for (AnnotationMap<?> map : expected) {
+        long start = metrics != AnnotationMetrics.NOOP ? System.nanoTime() : 0;
+        Annotation anno = field.getAnnotation(map.getAnnotationClass());
+        boolean matches = map.matches(anno);
+        if (!matches) offences.add(new Offence(field, map, anno));
+        if (metrics != AnnotationMetrics.NOOP)
+          metrics.evaluated(map.getAnnotationClass(), item, matches, System.nanoTime() - start);
+      }
+    }
+    return offences;
+  }
+}
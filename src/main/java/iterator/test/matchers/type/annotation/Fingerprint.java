@@ -0,0 +1,153 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+
+// 64 bit structural fingerprints built only from names and values, never from identity hash codes,
+// so the same annotation fingerprints identically in every jvm
+final class Fingerprint {
+
+  private static final long SEED = 0x9E3779B97F4A7C15L;
+
+  private static final long NULL = 0x5BD1E9955BD1E995L;
+
+  private static final long ARRAY = 0xC2B2AE3D27D4EB4FL;
+
+  private Fingerprint() {}
+
+  static long of(Annotation annotation) {
+    AnnotationSchema<?> schema = AnnotationSchema.of(annotation.annotationType());
+    long members = 0;
+    for (int i = 0; i < schema.size(); i++)
+      members ^= member(schema, i, value(schema.getValue(annotation, i)));
+    return of(schema, members);
+  }
+
+  // members is the xor of member(...) over every member, so changing one member's value needs only
+  // its old contribution xor-ed out and its new one xor-ed in
+  static long of(AnnotationSchema<?> schema, long members) {
+    return mix(combine(combine(SEED, schema.getTypeHash()), members));
+  }
+
+  // bound to the member's name, so equal values of different members still contribute differently
+  static long member(AnnotationSchema<?> schema, int index, long valueHash) {
+    return combine(schema.getNameHash(index), valueHash);
+  }
+
+  // fnv-1a over utf-16 code units, as String.hashCode is only 32 bits wide
+  static long hash(String str) {
+    long h = 0xCBF29CE484222325L;
+    for (int i = 0; i < str.length(); i++) {
+      h ^= str.charAt(i);
+      h *= 0x100000001B3L;
+    }
+    return h;
+  }
+
+  static long combine(long h, long v) {
+    return mix(h ^ (v + SEED + (h << 6) + (h >>> 2)));
+  }
+
+  // murmur3 finaliser
+  static long mix(long z) {
+    z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+    z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return z ^ (z >>> 33);
+  }
+
+  // primitive arrays come straight from annotations, boxed arrays from maps, both hash alike
+  static long value(Object value) {
+    if (value == null) return NULL;
+    if (value instanceof String) return hash((String) value);
+    if (value instanceof Boolean) return (Boolean) value ? 1231 : 1237;
+    if (value instanceof Character) return (Character) value;
+    if (value instanceof Number) return number((Number) value);
+    if (value instanceof Enum) return enumeration((Enum<?>) value);
+    if (value instanceof Class) return hash(((Class<?>) value).getName());
+    if (value instanceof Annotation) return of((Annotation) value);
+    if (value instanceof Object[]) {
+      Object[] arr = (Object[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (Object element : arr) h = combine(h, value(element));
+      return h;
+    }
+    return primitiveArray(value);
+  }
+
+  private static long enumeration(Enum<?> value) {
+    return combine(hash(value.getDeclaringClass().getName()), hash(value.name()));
+  }
+
+  private static long number(Number value) {
+    if (value instanceof Float) return Float.floatToIntBits((Float) value);
+    if (value instanceof Double) return Double.doubleToLongBits((Double) value);
+    return value.longValue();
+  }
+
+  private static long primitiveArray(Object value) {
+    if (value instanceof boolean[]) {
+      boolean[] arr = (boolean[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (boolean element : arr) h = combine(h, element ? 1231 : 1237);
+      return h;
+    }
+    if (value instanceof byte[]) {
+      byte[] arr = (byte[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (byte element : arr) h = combine(h, element);
+      return h;
+    }
+    if (value instanceof char[]) {
+      char[] arr = (char[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (char element : arr) h = combine(h, element);
+      return h;
+    }
+    if (value instanceof short[]) {
+      short[] arr = (short[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (short element : arr) h = combine(h, element);
+      return h;
+    }
+    if (value instanceof int[]) {
+      int[] arr = (int[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (int element : arr) h = combine(h, element);
+      return h;
+    }
+    if (value instanceof long[]) {
+      long[] arr = (long[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (long element : arr) h = combine(h, element);
+      return h;
+    }
+    if (value instanceof float[]) {
+      float[] arr = (float[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (float element : arr) h = combine(h, Float.floatToIntBits(element));
+      return h;
+    }
+    if (value instanceof double[]) {
+      double[] arr = (double[]) value;
+      long h = combine(ARRAY, arr.length);
+      for (double element : arr) h = combine(h, Double.doubleToLongBits(element));
+      return h;
+    }
+    throw new IllegalArgumentException(
+        String.format("Unsupported annotation member value: '%s'", value));
+  }
+}
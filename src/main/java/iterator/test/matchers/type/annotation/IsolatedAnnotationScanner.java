@@ -0,0 +1,145 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.AnnotationFormatError;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Loads the classes under the given roots in disposable loaders, a bounded batch at a time, and
+// keeps only the wanted annotations, encoded in the loader independent annotation index format.
+// Each batch loader is closed and dropped once encoded, so its classes can be unloaded and the
+// metaspace a sweep needs is bounded by the batch size rather than the size of the classpath.
+public final class IsolatedAnnotationScanner {
+
+  public static final int DEFAULT_BATCH_SIZE = 512;
+
+  // child first for everything under the roots, so the parent never pins a scanned class
+  private static final class BatchLoader extends URLClassLoader {
+
+    static {
+      registerAsParallelCapable();
+    }
+
+    private BatchLoader(URL[] urls, ClassLoader parent) {
+      super(urls, parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> type = findLoadedClass(name);
+        if (type == null && !name.startsWith("java.")) {
+          try {
+            type = findClass(name);
+          } catch (ClassNotFoundException e) {
+            // not under the roots, left to the parent
+          }
+        }
+        if (type == null) return super.loadClass(name, resolve);
+        if (resolve) resolveClass(type);
+        return type;
+      }
+    }
+  }
+
+  private final int batchSize;
+
+  // by name, as each batch defines its own copies of annotation types found under the roots
+  private final Set<String> annotationTypes = new HashSet<>();
+
+  public IsolatedAnnotationScanner(Collection<Class<? extends Annotation>> annotationTypes) {
+    this(DEFAULT_BATCH_SIZE, annotationTypes);
+  }
+
+  public IsolatedAnnotationScanner(
+      int batchSize, Collection<Class<? extends Annotation>> annotationTypes) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException(
+          String.format("Batch size must be positive but was %d", batchSize));
+    this.batchSize = batchSize;
+    annotationTypes.forEach(type -> this.annotationTypes.add(type.getName()));
+  }
+
+  // the index decodes against the parent, so its maps are of the caller's annotation types
+  public AnnotationIndex scan(ClassLoader parent, Path... roots) {
+    URL[] urls = ClassRoots.urls(roots);
+    List<String> names = new ArrayList<>();
+    for (Path root : roots) {
+      if (mightContainAny(root)) names.addAll(ClassRoots.classNames(root));
+    }
+    List<String> lines = new ArrayList<>();
+    List<String> unloadable = new ArrayList<>();
+    for (int from = 0; from < names.size(); from += batchSize) {
+      List<String> batch = names.subList(from, Math.min(from + batchSize, names.size()));
+      try (BatchLoader loader = new BatchLoader(urls, parent)) {
+        for (String name : batch) {
+          if (!extract(loader, name, lines)) unloadable.add(name);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return AnnotationIndex.of(parent, lines, unloadable);
+  }
+
+  // false when the class cannot be loaded in isolation, or its annotations cannot be read there
+  private boolean extract(ClassLoader loader, String name, List<String> lines) {
+    List<String> found = new ArrayList<>();
+    try {
+      Class<?> type = Class.forName(name, false, loader);
+      extract(found, name, AnnotationIndex.TYPE, type.getDeclaredAnnotations());
+      for (Field field : type.getDeclaredFields())
+        extract(
+            found, name, AnnotationIndex.FIELD + field.getName(), field.getDeclaredAnnotations());
+    } catch (ClassNotFoundException
+        | TypeNotPresentException
+        | AnnotationFormatError
+        | LinkageError
+        | IllegalStateException e) {
+      // IllegalStateException is how encoding reports a member value that cannot be resolved
+      return false;
+    }
+    lines.addAll(found);
+    return true;
+  }
+
+  private void extract(List<String> lines, String name, String element, Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotationTypes.contains(annotation.annotationType().getName()))
+        lines.add(String.format("%s\t%s\t%s", name, element, AnnotationIndex.encode(annotation)));
+    }
+  }
+
+  // a jar whose summary rules out every wanted type is left unread, though still on the class path;
+  // one without a summary is not read just to make one
+  private boolean mightContainAny(Path root) {
+    if (Files.isDirectory(root)) return true;
+    AnnotationBloomFilter filter = AnnotationBloomFilter.cached(root);
+    return filter == null || filter.mightContainAny(annotationTypes);
+  }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class MemberTable {
+
+  private static final ClassValue<MemberTable> TABLES =
+      new ClassValue<MemberTable>() {
+
+        @Override
+        protected MemberTable computeValue(Class<?> type) {
+          Metrics.missed(AnnotationMetrics.MEMBER_TABLE, null, type);
+          return new MemberTable(type);
+        }
+      };
+
+  private static final Method GET_RECORD_COMPONENTS =
+      findRecordMethod(Class.class, "getRecordComponents");
+
+  static MemberTable of(Class<?> type) {
+    Metrics.accessed(AnnotationMetrics.MEMBER_TABLE, null, type);
+    return TABLES.get(type);
+  }
+
+  static String signature(String name, Class<?>... parameterTypes) {
+    StringJoiner joiner = new StringJoiner(",", name + "(", ")");
+    for (Class<?> parameterType : parameterTypes) joiner.add(parameterType.getName());
+    return joiner.toString();
+  }
+
+  static AnnotatedType recordComponentType(AnnotatedElement component) {
+    return (AnnotatedType)
+        invoke(findRecordMethod(component.getClass(), "getAnnotatedType"), component);
+  }
+
+  private static Method findRecordMethod(Class<?> type, String name) {
+    try {
+      return type.getMethod(name);
+    } catch (NoSuchMethodException e) {
+      // records are only available from java 16 onwards
+      return null;
+    }
+  }
+
+  private static Object invoke(Method method, Object target) {
+    try {
+      return method.invoke(target);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(
+          String.format("Failed to invoke '%s' on '%s'", method.getName(), target), e);
+    }
+  }
+
+  private final Class<?> type;
+
+  private final Map<Executable, Parameter[]> parameters = new ConcurrentHashMap<>();
+
+  private final Map<TypePath, Optional<AnnotatedType>> annotatedTypes = new ConcurrentHashMap<>();
+
+  private volatile Map<String, Field> fields;
+
+  private volatile List<Field> allFields;
+
+  private volatile Map<String, Method> methods;
+
+  private volatile Map<String, Constructor<?>> constructors;
+
+  private volatile Map<String, AnnotatedElement> recordComponents;
+
+  private MemberTable(Class<?> type) {
+    this.type = type;
+  }
+
+  AnnotatedType annotatedType(TypePath path) {
+    Optional<AnnotatedType> resolved = annotatedTypes.get(path);
+    if (resolved == null) {
+      // resolving through the cached parent traverses every prefix of a path once per class
+      TypePath parent = path.getParent();
+      AnnotatedType annotatedType;
+      if (parent == null) {
+        annotatedType = path.resolve(this);
+      } else {
+        AnnotatedType parentType = annotatedType(parent);
+        annotatedType = parentType != null ? path.resolve(parentType) : null;
+      }
+      resolved = Optional.ofNullable(annotatedType);
+      Optional<AnnotatedType> previous = annotatedTypes.putIfAbsent(path, resolved);
+      if (previous != null) resolved = previous;
+    }
+    return resolved.orElse(null);
+  }
+
+  Constructor<?> constructor(Class<?>... parameterTypes) {
+    Map<String, Constructor<?>> table = constructors;
+    if (table == null) {
+      table = new HashMap<>();
+      for (Constructor<?> c : type.getDeclaredConstructors())
+        table.put(signature(type.getName(), c.getParameterTypes()), c);
+      constructors = table = Collections.unmodifiableMap(table);
+    }
+    return table.get(signature(type.getName(), parameterTypes));
+  }
+
+  Executable executable(String methodName, Class<?>... parameterTypes) {
+    return methodName != null ? method(methodName, parameterTypes) : constructor(parameterTypes);
+  }
+
+  Field field(String name) {
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      Field f = of(c).declaredFields().get(name);
+      if (f != null) return f;
+    }
+    return null;
+  }
+
+  // declared and inherited fields, nearest class first, without compiler or agent generated fields
+  List<Field> fields() {
+    List<Field> list = allFields;
+    if (list == null) {
+      list = new ArrayList<>();
+      for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+        for (Field f : of(c).declaredFields().values()) if (!f.isSynthetic()) list.add(f);
+      }
+      allFields = list = Collections.unmodifiableList(list);
+    }
+    return list;
+  }
+
+  // declared or inherited from a superclass, else inherited from an interface, nearest first
+  Method method(String name, Class<?>... parameterTypes) {
+    String signature = signature(name, parameterTypes);
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      Method m = of(c).declaredMethods().get(signature);
+      if (m != null) return m;
+    }
+    Deque<Class<?>> interfaces = new ArrayDeque<>();
+    Set<Class<?>> seen = new HashSet<>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass())
+      interfaces.addAll(Arrays.asList(c.getInterfaces()));
+    while (!interfaces.isEmpty()) {
+      Class<?> i = interfaces.removeFirst();
+      if (!seen.add(i)) continue;
+      Method m = of(i).declaredMethods().get(signature);
+      // static interface methods are not inherited
+      if (m != null && !Modifier.isStatic(m.getModifiers())) return m;
+      interfaces.addAll(Arrays.asList(i.getInterfaces()));
+    }
+    return null;
+  }
+
+  Parameter parameter(Executable executable, int index) {
+    if (executable == null) return null;
+    Parameter[] params = parameters.computeIfAbsent(executable, Executable::getParameters);
+    return index >= 0 && index < params.length ? params[index] : null;
+  }
+
+  AnnotatedElement recordComponent(String name) {
+    Map<String, AnnotatedElement> table = recordComponents;
+    if (table == null) {
+      table = new HashMap<>();
+      Object[] components =
+          GET_RECORD_COMPONENTS != null ? (Object[]) invoke(GET_RECORD_COMPONENTS, type) : null;
+      if (components != null && components.length > 0) {
+        Method getName = findRecordMethod(components[0].getClass(), "getName");
+        for (Object component : components)
+          table.put((String) invoke(getName, component), (AnnotatedElement) component);
+      }
+      recordComponents = table = Collections.unmodifiableMap(table);
+    }
+    return table.get(name);
+  }
+
+  private Map<String, Field> declaredFields() {
+    Map<String, Field> table = fields;
+    if (table == null) {
+      table = new LinkedHashMap<>();
+      for (Field f : type.getDeclaredFields()) table.put(f.getName(), f);
+      fields = table = Collections.unmodifiableMap(table);
+    }
+    return table;
+  }
+
+  private Map<String, Method> declaredMethods() {
+    Map<String, Method> table = methods;
+    if (table == null) {
+      table = new HashMap<>();
+      for (Method m : type.getDeclaredMethods()) {
+        // a covariant override also declares a synthetic bridge with the same parameter types
+        if (!m.isBridge()) table.put(signature(m.getName(), m.getParameterTypes()), m);
+      }
+      methods = table = Collections.unmodifiableMap(table);
+    }
+    return table;
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+
+public class MethodAnnotationMatcher<A extends Annotation, T>
+    extends AnnotatedElementMatcher<A, T> {
+
+  private final String methodName;
+
+  private final Class<?>[] parameterTypes;
+
+  public MethodAnnotationMatcher(String methodName, AnnotationMap<A> expected) {
+    this(methodName, new Class<?>[0], expected);
+  }
+
+  public MethodAnnotationMatcher(
+      String methodName, Class<?>[] parameterTypes, AnnotationMap<A> expected) {
+    super(expected);
+    this.methodName = methodName;
+    this.parameterTypes = parameterTypes.clone();
+  }
+
+  @Override
+  protected AnnotatedElement findElement(Class<T> item) {
+    return MemberTable.of(item).method(methodName, parameterTypes);
+  }
+
+  @Override
+  String element() {
+    return String.format("method '%s'", MemberTable.signature(methodName, parameterTypes));
+  }
+}
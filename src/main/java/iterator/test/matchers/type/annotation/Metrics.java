@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+
+// holds the installed metrics; callers compare against NOOP before timing anything, so the disabled
+// path is one field read and a reference comparison
+final class Metrics {
+
+  // object header plus fields, the slot array, and a boxed member value per slot
+  private static final long MAP_BYTES = 32;
+
+  private static final long ARRAY_BYTES = 16;
+
+  private static final long SLOT_BYTES = 4 + 32;
+
+  static volatile AnnotationMetrics current = AnnotationMetrics.NOOP;
+
+  private Metrics() {}
+
+  static void accessed(String cache, Class<? extends Annotation> annotationType, Object key) {
+    AnnotationMetrics metrics = current;
+    if (metrics != AnnotationMetrics.NOOP) metrics.cacheAccessed(cache, annotationType, key);
+  }
+
+  static long estimateMapBytes(int members) {
+    return MAP_BYTES + ARRAY_BYTES + SLOT_BYTES * members;
+  }
+
+  static void missed(String cache, Class<? extends Annotation> annotationType, Object key) {
+    AnnotationMetrics metrics = current;
+    if (metrics != AnnotationMetrics.NOOP) metrics.cacheMissed(cache, annotationType, key);
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+
+public class ParameterAnnotationMatcher<A extends Annotation, T>
+    extends AnnotatedElementMatcher<A, T> {
+
+  private final String methodName;
+
+  private final Class<?>[] parameterTypes;
+
+  private final int index;
+
+  // matches a parameter of the constructor with the given parameter types
+  public ParameterAnnotationMatcher(
+      Class<?>[] parameterTypes, int index, AnnotationMap<A> expected) {
+    this(null, parameterTypes, index, expected);
+  }
+
+  public ParameterAnnotationMatcher(
+      String methodName, Class<?>[] parameterTypes, int index, AnnotationMap<A> expected) {
+    super(expected);
+    this.methodName = methodName;
+    this.parameterTypes = parameterTypes.clone();
+    this.index = index;
+  }
+
+  @Override
+  protected AnnotatedElement findElement(Class<T> item) {
+    MemberTable table = MemberTable.of(item);
+    return table.parameter(table.executable(methodName, parameterTypes), index);
+  }
+
+  @Override
+  String element() {
+    String executable = methodName != null ? methodName : "<init>";
+    return String.format(
+        "parameter %d of '%s'", index, MemberTable.signature(executable, parameterTypes));
+  }
+}
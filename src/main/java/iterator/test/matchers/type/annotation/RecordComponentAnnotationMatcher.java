@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+
+public class RecordComponentAnnotationMatcher<A extends Annotation, T>
+    extends AnnotatedElementMatcher<A, T> {
+
+  private final String componentName;
+
+  public RecordComponentAnnotationMatcher(String componentName, AnnotationMap<A> expected) {
+    super(expected);
+    this.componentName = componentName;
+  }
+
+  @Override
+  protected AnnotatedElement findElement(Class<T> item) {
+    return MemberTable.of(item).recordComponent(componentName);
+  }
+
+  @Override
+  String element() {
+    return String.format("record component '%s'", componentName);
+  }
+}
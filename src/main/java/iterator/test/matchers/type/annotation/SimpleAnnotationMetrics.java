@@ -0,0 +1,197 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SimpleAnnotationMetrics implements AnnotationMetrics {
+
+  public static final class CacheStats {
+
+    private final LongAdder accesses = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public long getAccesses() {
+      return accesses.sum();
+    }
+
+    public double getHitRatio() {
+      long total = getAccesses();
+      return total == 0 ? 0 : (double) (total - getMisses()) / total;
+    }
+
+    public long getMisses() {
+      return misses.sum();
+    }
+  }
+
+  // power of two buckets: bucket i counts latencies in [2^i, 2^(i+1)) nanoseconds
+  public static final class LatencyHistogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+    public long[] getBuckets() {
+      long[] copy = new long[buckets.length()];
+      for (int i = 0; i < copy.length; i++) copy[i] = buckets.get(i);
+      return copy;
+    }
+
+    public long getCount() {
+      long count = 0;
+      for (int i = 0; i < buckets.length(); i++) count += buckets.get(i);
+      return count;
+    }
+
+    // upper bound in nanoseconds of the bucket holding the given percentile
+    public long getPercentile(double percentile) {
+      long[] counts = getBuckets();
+      long total = 0;
+      for (long count : counts) total += count;
+      long rank = (long) Math.ceil(total * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank && seen > 0)
+          return i == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+      }
+      return 0;
+    }
+
+    void record(long nanos) {
+      buckets.incrementAndGet(Math.max(0, Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos)));
+    }
+  }
+
+  public static final class TypeStats {
+
+    private final LongAdder matches = new LongAdder();
+
+    private final LongAdder mismatches = new LongAdder();
+
+    private final LongAdder maps = new LongAdder();
+
+    private final LongAdder estimatedBytes = new LongAdder();
+
+    private final LatencyHistogram evaluationLatency = new LatencyHistogram();
+
+    private final LatencyHistogram mismatchDescriptionLatency = new LatencyHistogram();
+
+    private final Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+
+    // lookups made for this annotation type alone
+    public CacheStats getCacheStats(String cache) {
+      return cacheStats(caches, cache);
+    }
+
+    public long getEstimatedBytes() {
+      return estimatedBytes.sum();
+    }
+
+    public long getEvaluations() {
+      return getMatches() + getMismatches();
+    }
+
+    public LatencyHistogram getEvaluationLatency() {
+      return evaluationLatency;
+    }
+
+    public long getMapsCreated() {
+      return maps.sum();
+    }
+
+    public long getMatches() {
+      return matches.sum();
+    }
+
+    public double getMatchRatio() {
+      long total = getEvaluations();
+      return total == 0 ? 0 : (double) getMatches() / total;
+    }
+
+    public LatencyHistogram getMismatchDescriptionLatency() {
+      return mismatchDescriptionLatency;
+    }
+
+    public long getMismatches() {
+      return mismatches.sum();
+    }
+  }
+
+  private static CacheStats cacheStats(Map<String, CacheStats> caches, String cache) {
+    return caches.computeIfAbsent(cache, name -> new CacheStats());
+  }
+
+  // kept by each annotation type rather than keyed on it, so the stats never pin an isolated loader
+  private final ClassValue<TypeStats> types =
+      new ClassValue<TypeStats>() {
+
+        @Override
+        protected TypeStats computeValue(Class<?> type) {
+          return new TypeStats();
+        }
+      };
+
+  private final Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+
+  @Override
+  public void cacheAccessed(String cache, Class<? extends Annotation> annotationType, Object key) {
+    cacheStats(caches, cache).accesses.increment();
+    if (annotationType != null) typeStats(annotationType).getCacheStats(cache).accesses.increment();
+  }
+
+  @Override
+  public void cacheMissed(String cache, Class<? extends Annotation> annotationType, Object key) {
+    cacheStats(caches, cache).misses.increment();
+    if (annotationType != null) typeStats(annotationType).getCacheStats(cache).misses.increment();
+  }
+
+  @Override
+  public void evaluated(
+      Class<? extends Annotation> annotationType, Class<?> target, boolean matched, long nanos) {
+    TypeStats stats = typeStats(annotationType);
+    (matched ? stats.matches : stats.mismatches).increment();
+    stats.evaluationLatency.record(nanos);
+  }
+
+  public CacheStats getCacheStats(String cache) {
+    return cacheStats(caches, cache);
+  }
+
+  public TypeStats getTypeStats(Class<? extends Annotation> annotationType) {
+    return typeStats(annotationType);
+  }
+
+  @Override
+  public void mapCreated(Class<? extends Annotation> annotationType, long estimatedBytes) {
+    TypeStats stats = typeStats(annotationType);
+    stats.maps.increment();
+    stats.estimatedBytes.add(estimatedBytes);
+  }
+
+  @Override
+  public void mismatchDescribed(Class<? extends Annotation> annotationType, long nanos) {
+    typeStats(annotationType).mismatchDescriptionLatency.record(nanos);
+  }
+
+  private TypeStats typeStats(Class<? extends Annotation> annotationType) {
+    return types.get(annotationType);
+  }
+}
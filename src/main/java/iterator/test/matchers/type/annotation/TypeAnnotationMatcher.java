@@ -27,6 +27,7 @@ public class TypeAnnotationMatcher<A extends Annotation, T> extends AnnotationMa
 
   @Override
   protected A findAnnotation(Class<T> item) {
-    return Reflection.findTypeAnnotation(item, getExpected().getAnnotationClass());
+    Class<A> type = getExpected().getAnnotationClass();
+    return AnnotationPresence.onType(item, type) ? Reflection.findTypeAnnotation(item, type) : null;
   }
 }
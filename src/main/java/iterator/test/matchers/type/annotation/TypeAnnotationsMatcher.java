@@ -0,0 +1,125 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import iterator.Reflection;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.hamcrest.Description;
+import org.hamcrest.TypeSafeMatcher;
+
+public class TypeAnnotationsMatcher<T> extends TypeSafeMatcher<Class<T>> {
+
+  private static final class Failure {
+
+    private final AnnotationMap<?> expected;
+
+    private final AnnotationMap<?> actual;
+
+    private Failure(AnnotationMap<?> expected, AnnotationMap<?> actual) {
+      this.expected = expected;
+      this.actual = actual;
+    }
+
+    @Override
+    public String toString() {
+      return actual != null
+          ? expected.difference(actual, AnnotationMapDiff.DEFAULT_LIMIT).toString()
+          : String.format("expected %s but was null", expected);
+    }
+  }
+
+  private final Map<Class<? extends Annotation>, List<AnnotationMap<?>>> expected =
+      new LinkedHashMap<>();
+
+  private volatile FailedMatch<List<Failure>> failed;
+
+  public TypeAnnotationsMatcher(AnnotationMap<?>... expected) {
+    this(Arrays.asList(expected));
+  }
+
+  public TypeAnnotationsMatcher(Collection<? extends AnnotationMap<?>> expected) {
+    for (AnnotationMap<?> map : expected)
+      this.expected.computeIfAbsent(map.getAnnotationClass(), type -> new ArrayList<>()).add(map);
+  }
+
+  @Override
+  public void describeTo(Description description) {
+    StringJoiner joiner = new StringJoiner(" and ");
+    expected.values().forEach(maps -> maps.forEach(map -> joiner.add(map.toString())));
+    description.appendText(joiner.toString());
+  }
+
+  @Override
+  protected void describeMismatchSafely(Class<T> item, Description mismatchDescription) {
+    AnnotationMetrics metrics = Metrics.current;
+    List<Failure> failures = FailedMatch.of(failed, item);
+    if (failures == null) failures = evaluate(item, AnnotationMetrics.NOOP);
+    StringJoiner joiner = new StringJoiner(", ");
+    for (Failure failure : failures) {
+      long start = metrics != AnnotationMetrics.NOOP ? System.nanoTime() : 0;
+      joiner.add(failure.toString());
+      if (metrics != AnnotationMetrics.NOOP)
+        metrics.mismatchDescribed(failure.expected.getAnnotationClass(), System.nanoTime() - start);
+    }
+    mismatchDescription.appendText(joiner.toString());
+  }
+
+  @Override
+  protected boolean matchesSafely(Class<T> item) {
+    List<Failure> failures = evaluate(item, Metrics.current);
+    if (failures.isEmpty()) return true;
+    failed = new FailedMatch<>(item, failures);
+    return false;
+  }
+
+  // one lookup, one fingerprint and at most one conversion per annotation type, however many
+  // expectations share it
+  private List<Failure> evaluate(Class<T> item, AnnotationMetrics metrics) {
+    List<Failure> failures = new ArrayList<>();
+    expected.forEach(
+        (type, maps) -> {
+          long start = metrics != AnnotationMetrics.NOOP ? System.nanoTime() : 0;
+          Annotation anno =
+              AnnotationPresence.onType(item, type)
+                  ? Reflection.findTypeAnnotation(item, type)
+                  : null;
+          long fingerprint = anno != null ? AnnotationMap.fingerprint(anno) : 0L;
+          AnnotationMap<?> actual = null;
+          List<AnnotationMap<?>> failed = new ArrayList<>();
+          for (AnnotationMap<?> map : maps) {
+            if (anno != null && map.fingerprint() == fingerprint) {
+              if (actual == null) actual = AnnotationMap.of(anno);
+              if (map.equals(actual)) continue;
+            }
+            failed.add(map);
+          }
+          if (!failed.isEmpty() && actual == null && anno != null) actual = AnnotationMap.of(anno);
+          for (AnnotationMap<?> map : failed) failures.add(new Failure(map, actual));
+          if (metrics != AnnotationMetrics.NOOP)
+            metrics.evaluated(type, item, failed.isEmpty(), System.nanoTime() - start);
+        });
+    return failures;
+  }
+}
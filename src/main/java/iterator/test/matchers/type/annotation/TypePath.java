@@ -0,0 +1,280 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.reflect.AnnotatedArrayType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.AnnotatedWildcardType;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Objects;
+
+public final class TypePath {
+
+  // a step from an annotated type into one of the types nested in it
+  private enum NestedStep {
+    TYPE_ARGUMENT {
+
+      @Override
+      AnnotatedType resolve(AnnotatedType parent, int index) {
+        return parent instanceof AnnotatedParameterizedType
+            ? element(
+                ((AnnotatedParameterizedType) parent).getAnnotatedActualTypeArguments(), index)
+            : null;
+      }
+
+      @Override
+      String describe(TypePath path) {
+        return String.format("type argument %d", path.index);
+      }
+    },
+    ARRAY_COMPONENT {
+
+      @Override
+      AnnotatedType resolve(AnnotatedType parent, int index) {
+        return parent instanceof AnnotatedArrayType
+            ? ((AnnotatedArrayType) parent).getAnnotatedGenericComponentType()
+            : null;
+      }
+
+      @Override
+      String describe(TypePath path) {
+        return "array component";
+      }
+    },
+    UPPER_BOUND {
+
+      @Override
+      AnnotatedType resolve(AnnotatedType parent, int index) {
+        return parent instanceof AnnotatedWildcardType
+            ? element(((AnnotatedWildcardType) parent).getAnnotatedUpperBounds(), index)
+            : null;
+      }
+
+      @Override
+      String describe(TypePath path) {
+        return String.format("upper bound %d", path.index);
+      }
+    },
+    LOWER_BOUND {
+
+      @Override
+      AnnotatedType resolve(AnnotatedType parent, int index) {
+        return parent instanceof AnnotatedWildcardType
+            ? element(((AnnotatedWildcardType) parent).getAnnotatedLowerBounds(), index)
+            : null;
+      }
+
+      @Override
+      String describe(TypePath path) {
+        return String.format("lower bound %d", path.index);
+      }
+    };
+
+    private static AnnotatedType element(AnnotatedType[] types, int index) {
+      return index >= 0 && index < types.length ? types[index] : null;
+    }
+
+    abstract String describe(TypePath path);
+
+    abstract AnnotatedType resolve(AnnotatedType parent, int index);
+  }
+
+  // a step from a class to the annotated type of one of its members, which starts every path
+  private enum RootStep {
+    FIELD {
+
+      @Override
+      AnnotatedType resolve(TypePath path, MemberTable table) {
+        Field field = table.field(path.name);
+        return field != null ? field.getAnnotatedType() : null;
+      }
+
+      @Override
+      String describe(TypePath path) {
+        return String.format("field '%s'", path.name);
+      }
+    },
+    METHOD_RETURN {
+
+      @Override
+      AnnotatedType resolve(TypePath path, MemberTable table) {
+        Method method = table.method(path.name, path.parameterTypes);
+        return method != null ? method.getAnnotatedReturnType() : null;
+      }
+
+      @Override
+      String describe(TypePath path) {
+        return String.format(
+            "return type of %s", MemberTable.signature(path.name, path.parameterTypes));
+      }
+    },
+    PARAMETER {
+
+      @Override
+      AnnotatedType resolve(TypePath path, MemberTable table) {
+        Executable executable = table.executable(path.name, path.parameterTypes);
+        Parameter parameter = table.parameter(executable, path.index);
+        return parameter != null ? parameter.getAnnotatedType() : null;
+      }
+
+      @Override
+      String describe(TypePath path) {
+        String name = path.name != null ? path.name : "<init>";
+        return String.format(
+            "parameter %d of %s", path.index, MemberTable.signature(name, path.parameterTypes));
+      }
+    },
+    RECORD_COMPONENT {
+
+      @Override
+      AnnotatedType resolve(TypePath path, MemberTable table) {
+        AnnotatedElement component = table.recordComponent(path.name);
+        return component != null ? MemberTable.recordComponentType(component) : null;
+      }
+
+      @Override
+      String describe(TypePath path) {
+        return String.format("record component '%s'", path.name);
+      }
+    };
+
+    abstract String describe(TypePath path);
+
+    abstract AnnotatedType resolve(TypePath path, MemberTable table);
+  }
+
+  private static final Class<?>[] NO_TYPES = new Class<?>[0];
+
+  public static TypePath constructorParameter(Class<?>[] parameterTypes, int index) {
+    return new TypePath(RootStep.PARAMETER, null, parameterTypes.clone(), index);
+  }
+
+  public static TypePath field(String name) {
+    return new TypePath(RootStep.FIELD, name, NO_TYPES, 0);
+  }
+
+  public static TypePath methodParameter(String methodName, Class<?>[] parameterTypes, int index) {
+    return new TypePath(
+        RootStep.PARAMETER, Objects.requireNonNull(methodName), parameterTypes.clone(), index);
+  }
+
+  public static TypePath methodReturn(String methodName, Class<?>... parameterTypes) {
+    return new TypePath(RootStep.METHOD_RETURN, methodName, parameterTypes.clone(), 0);
+  }
+
+  public static TypePath recordComponent(String name) {
+    return new TypePath(RootStep.RECORD_COMPONENT, name, NO_TYPES, 0);
+  }
+
+  private final TypePath parent;
+
+  // exactly one of the two is set, according to whether the path has a parent
+  private final RootStep root;
+
+  private final NestedStep nested;
+
+  private final String name;
+
+  private final Class<?>[] parameterTypes;
+
+  private final int index;
+
+  private final int hash;
+
+  private TypePath(RootStep root, String name, Class<?>[] parameterTypes, int index) {
+    this(null, root, null, name, parameterTypes, index);
+  }
+
+  private TypePath(TypePath parent, NestedStep nested, int index) {
+    this(Objects.requireNonNull(parent), null, nested, null, NO_TYPES, index);
+  }
+
+  private TypePath(
+      TypePath parent,
+      RootStep root,
+      NestedStep nested,
+      String name,
+      Class<?>[] parameterTypes,
+      int index) {
+    this.parent = parent;
+    this.root = root;
+    this.nested = nested;
+    this.name = name;
+    this.parameterTypes = parameterTypes;
+    this.index = index;
+    this.hash =
+        Objects.hash(parent, root, nested, name, index) * 31 + Arrays.hashCode(parameterTypes);
+  }
+
+  public TypePath arrayComponent() {
+    return new TypePath(this, NestedStep.ARRAY_COMPONENT, 0);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (!(obj instanceof TypePath)) return false;
+    TypePath other = (TypePath) obj;
+    return hash == other.hash
+        && root == other.root
+        && nested == other.nested
+        && index == other.index
+        && Objects.equals(name, other.name)
+        && Arrays.equals(parameterTypes, other.parameterTypes)
+        && Objects.equals(parent, other.parent);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  public TypePath lowerBound(int index) {
+    return new TypePath(this, NestedStep.LOWER_BOUND, index);
+  }
+
+  @Override
+  public String toString() {
+    String description = root != null ? root.describe(this) : nested.describe(this);
+    return parent != null ? String.format("%s, %s", parent, description) : description;
+  }
+
+  public TypePath typeArgument(int index) {
+    return new TypePath(this, NestedStep.TYPE_ARGUMENT, index);
+  }
+
+  public TypePath upperBound(int index) {
+    return new TypePath(this, NestedStep.UPPER_BOUND, index);
+  }
+
+  TypePath getParent() {
+    return parent;
+  }
+
+  AnnotatedType resolve(MemberTable table) {
+    return root.resolve(this, table);
+  }
+
+  AnnotatedType resolve(AnnotatedType parentType) {
+    return nested.resolve(parentType, index);
+  }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2016 Iterator Ltd. (iteratoruk@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.test.matchers.type.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+
+public class TypeUseAnnotationMatcher<A extends Annotation, T>
+    extends AnnotatedElementMatcher<A, T> {
+
+  private final TypePath path;
+
+  public TypeUseAnnotationMatcher(TypePath path, AnnotationMap<A> expected) {
+    super(expected);
+    this.path = path;
+  }
+
+  @Override
+  protected AnnotatedElement findElement(Class<T> item) {
+    return MemberTable.of(item).annotatedType(path);
+  }
+
+  @Override
+  String element() {
+    return String.format("type use at %s", path);
+  }
+}
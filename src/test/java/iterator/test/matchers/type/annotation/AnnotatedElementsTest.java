@@ -0,0 +1,156 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.lang.reflect.AnnotatedElement;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnnotatedElementsTest {
+
+  @TestAnnotationWithValue("first")
+  static class First {
+
+    @TestAnnotationWithValue("field")
+    String field;
+  }
+
+  static class Second {}
+
+  private static Path testClasses() throws Exception {
+    return Paths.get(
+        AnnotatedElementsTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+
+  private static List<AnnotatedElement> scan(Path... roots) {
+    try (Stream<AnnotatedElement> elements =
+        AnnotatedElements.scan(AnnotatedElementsTest.class.getClassLoader(), roots)) {
+      return elements.collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  void shouldStreamEachClassFollowedByItsFields(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, First.class, Second.class);
+    // when
+    List<AnnotatedElement> actual = scan(jar);
+    // then
+    assertThat(actual, contains(First.class, First.class.getDeclaredField("field"), Second.class));
+  }
+
+  @Test
+  void shouldStreamDeclaredAnnotationsOfType() throws Exception {
+    // given
+    TestAnnotationWithValue expected = First.class.getAnnotation(TestAnnotationWithValue.class);
+    // when
+    List<AnnotationMap<TestAnnotationWithValue>> actual;
+    try (Stream<TestAnnotationWithValue> annotations =
+        AnnotatedElements.annotations(
+            TestAnnotationWithValue.class, getClass().getClassLoader(), testClasses())) {
+      actual = annotations.map(AnnotationMap::of).collect(Collectors.toList());
+    }
+    // then
+    assertThat(actual, hasItem(AnnotationMap.of(expected)));
+    assertThat(
+        actual,
+        hasItem(
+            AnnotationMap.of(
+                First.class
+                    .getDeclaredField("field")
+                    .getAnnotation(TestAnnotationWithValue.class))));
+  }
+
+  @Test
+  void shouldStreamTheSameElementsInParallel() throws Exception {
+    // given
+    List<AnnotatedElement> expected = scan(testClasses());
+    // when
+    List<AnnotatedElement> actual;
+    try (Stream<AnnotatedElement> elements =
+        AnnotatedElements.scan(getClass().getClassLoader(), testClasses())) {
+      actual = elements.parallel().collect(Collectors.toList());
+    }
+    // then
+    assertThat(actual, is(equalTo(expected)));
+    assertThat(actual, hasItems(First.class, Second.class, AnnotatedElementsTest.class));
+  }
+
+  @Test
+  void shouldSplitIntoPrefixAndSuffixByRoot(@TempDir Path dir) throws Exception {
+    // given
+    Path first =
+        AnnotationBloomFilterTest.jarOf(Files.createDirectory(dir.resolve("first")), First.class);
+    Path second =
+        AnnotationBloomFilterTest.jarOf(Files.createDirectory(dir.resolve("second")), Second.class);
+    List<AnnotatedElement> actual = new ArrayList<>();
+    try (Stream<AnnotatedElement> elements =
+        AnnotatedElements.scan(getClass().getClassLoader(), first, second)) {
+      Spliterator<AnnotatedElement> suffix = elements.spliterator();
+      // when
+      Spliterator<AnnotatedElement> prefix = suffix.trySplit();
+      // then
+      assertThat(prefix.estimateSize(), is(1L));
+      assertThat(suffix.estimateSize(), is(1L));
+      assertThat(prefix.characteristics(), is(equalTo(Spliterator.ORDERED | Spliterator.NONNULL)));
+      prefix.forEachRemaining(actual::add);
+      suffix.forEachRemaining(actual::add);
+    }
+    assertThat(actual, contains(First.class, First.class.getDeclaredField("field"), Second.class));
+  }
+
+  @Test
+  void shouldSplitJarByPackage(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, First.class, Test.class);
+    try (Stream<AnnotatedElement> elements =
+        AnnotatedElements.scan(getClass().getClassLoader(), jar)) {
+      Spliterator<AnnotatedElement> suffix = elements.spliterator();
+      // when
+      Spliterator<AnnotatedElement> prefix = suffix.trySplit();
+      // then
+      assertThat(prefix, is(notNullValue()));
+      assertThat(prefix.tryAdvance(element -> assertThat(element, is(First.class))), is(true));
+      assertThat(suffix.tryAdvance(element -> assertThat(element, is(Test.class))), is(true));
+      assertThat(suffix.trySplit(), is(nullValue()));
+    }
+  }
+
+  @Test
+  void shouldEstimateClassEntriesOfJarOnly(@TempDir Path dir) throws Exception {
+    // given
+    Path classes = AnnotationBloomFilterTest.jarOf(dir, First.class, Second.class);
+    Path jar = dir.resolve("mixed.jar");
+    try (JarFile in = new JarFile(classes.toFile());
+        JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (JarEntry entry : Collections.list(in.entries())) {
+        out.putNextEntry(new JarEntry(entry.getName()));
+        in.getInputStream(entry).transferTo(out);
+        out.closeEntry();
+      }
+      out.putNextEntry(new JarEntry("sample/readme.txt"));
+      out.closeEntry();
+    }
+    try (Stream<AnnotatedElement> elements =
+        AnnotatedElements.scan(getClass().getClassLoader(), jar)) {
+      // when
+      long actual = elements.spliterator().estimateSize();
+      // then
+      assertThat(actual, is(2L));
+    }
+  }
+}
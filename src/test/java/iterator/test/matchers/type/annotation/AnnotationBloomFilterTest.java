@@ -0,0 +1,135 @@
+package iterator.test.matchers.type.annotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Retention;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnnotationBloomFilterTest {
+
+  @TestAnnotationWithValue("foo")
+  static class Sample {}
+
+  static Path jarOf(Path dir, Class<?>... classes) throws IOException {
+    Path jar = dir.resolve("sample.jar");
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out)) {
+      for (Class<?> type : classes) {
+        String name = type.getName().replace('.', '/') + ".class";
+        jarOut.putNextEntry(new JarEntry(name));
+        try (InputStream in = type.getClassLoader().getResourceAsStream(name)) {
+          in.transferTo(jarOut);
+        }
+        jarOut.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  // a jar listing its annotation types, whose one class cannot be parsed if it is ever read
+  static Path listingJarOf(Path dir, Class<?>... annotationTypes) throws IOException {
+    Path jar = dir.resolve("listing.jar");
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out)) {
+      jarOut.putNextEntry(new JarEntry(AnnotationBloomFilter.RESOURCE));
+      for (Class<?> type : annotationTypes) {
+        jarOut.write((type.getName() + "\n").getBytes(UTF_8));
+      }
+      jarOut.closeEntry();
+      jarOut.putNextEntry(new JarEntry("sample/Broken.class"));
+      jarOut.write(new byte[] {1, 2, 3});
+      jarOut.closeEntry();
+    }
+    return jar;
+  }
+
+  @Test
+  void shouldContainAnnotationUsedInJar(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = jarOf(dir, Sample.class);
+    // when
+    AnnotationBloomFilter filter = AnnotationBloomFilter.of(jar);
+    // then
+    assertThat(filter.mightContain(TestAnnotationWithValue.class), is(true));
+  }
+
+  @Test
+  void shouldNotContainAnnotationAbsentFromJar(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = jarOf(dir, Sample.class);
+    // when
+    AnnotationBloomFilter filter = AnnotationBloomFilter.of(jar);
+    // then
+    assertThat(filter.mightContain(Retention.class), is(false));
+  }
+
+  @Test
+  void shouldReturnCachedFilterGivenUnchangedJar(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = jarOf(dir, Sample.class);
+    // when
+    AnnotationBloomFilter filter = AnnotationBloomFilter.forJar(jar);
+    // then
+    assertThat(filter, is(sameInstance(AnnotationBloomFilter.forJar(jar))));
+  }
+
+  @Test
+  void shouldReplaceCachedFilterGivenChangedJar(@TempDir Path dir) throws Exception {
+    // given
+    AnnotationBloomFilter stale = AnnotationBloomFilter.forJar(jarOf(dir, Sample.class));
+    Path jar = jarOf(dir, Sample.class, AnnotationBloomFilterTest.class);
+    // when
+    AnnotationBloomFilter actual = AnnotationBloomFilter.forJar(jar);
+    // then
+    assertThat(actual, is(not(sameInstance(stale))));
+    assertThat(actual, is(sameInstance(AnnotationBloomFilter.forJar(jar))));
+  }
+
+  @Test
+  void shouldReadAnnotationTypesListedInJarRatherThanItsClasses(@TempDir Path dir)
+      throws Exception {
+    // given
+    Path jar = listingJarOf(dir, TestAnnotationWithValue.class);
+    // when
+    AnnotationBloomFilter actual = AnnotationBloomFilter.forJar(jar);
+    // then
+    assertThat(actual.mightContain(TestAnnotationWithValue.class), is(true));
+    assertThat(actual.mightContain(Retention.class), is(false));
+  }
+
+  @Test
+  void shouldHaveNoCachedFilterGivenJarNeitherListedNorScanned(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = jarOf(dir, Sample.class);
+    // when
+    AnnotationBloomFilter actual = AnnotationBloomFilter.cached(jar);
+    // then
+    assertThat(actual, is(nullValue()));
+  }
+
+  @Test
+  void shouldReadWrittenFilter(@TempDir Path dir) throws Exception {
+    // given
+    AnnotationBloomFilter filter = AnnotationBloomFilter.of(jarOf(dir, Sample.class));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // when
+    filter.writeTo(out);
+    AnnotationBloomFilter actual =
+        AnnotationBloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    // then
+    assertThat(actual.mightContain(TestAnnotationWithValue.class), is(true));
+  }
+}
@@ -0,0 +1,61 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.hamcrest.StringDescription;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@TestAnnotationWithValue("foo")
+class AnnotationEventsTest {
+
+  @Test
+  void shouldRecordEventsGivenZeroThreshold(@TempDir Path dir) throws Exception {
+    // given
+    TypeAnnotationMatcher<TestAnnotationWithValue, AnnotationEventsTest> matcher;
+    Path file = dir.resolve("matchers.jfr");
+    // when
+    try (Recording recording = new Recording()) {
+      recording.enable(AnnotationEvents.MapConstruction.class).withThreshold(Duration.ZERO);
+      recording.enable(AnnotationEvents.MatcherEvaluation.class).withThreshold(Duration.ZERO);
+      recording.enable(AnnotationEvents.MismatchRendering.class).withThreshold(Duration.ZERO);
+      recording.start();
+      matcher =
+          new TypeAnnotationMatcher<>(
+              AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar"));
+      matcher.matches(AnnotationEventsTest.class);
+      matcher.describeMismatch(AnnotationEventsTest.class, new StringDescription());
+      recording.stop();
+      recording.dump(file);
+    }
+    // then
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    List<String> names =
+        events.stream().map(e -> e.getEventType().getName()).collect(Collectors.toList());
+    assertThat(
+        names,
+        hasItems(
+            "iterator.AnnotationMapConstruction",
+            "iterator.AnnotationMatcherEvaluation",
+            "iterator.AnnotationMismatchRendering"));
+    RecordedEvent evaluation =
+        events.stream()
+            .filter(e -> e.getEventType().getName().equals("iterator.AnnotationMatcherEvaluation"))
+            .findFirst()
+            .get();
+    assertThat(evaluation.getBoolean("matched"), is(false));
+    assertThat(evaluation.getClass("target").getName(), is(AnnotationEventsTest.class.getName()));
+    assertThat(
+        evaluation.getClass("annotationType").getName(),
+        is(TestAnnotationWithValue.class.getName()));
+  }
+}
@@ -0,0 +1,139 @@
+package iterator.test.matchers.type.annotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.junit.jupiter.api.Test;
+
+class AnnotationIndexTest {
+
+  private static final String PACKAGE = "iterator.test.matchers.type.annotation.";
+
+  @TestAnnotationWithValue("foo")
+  static class Indexed {
+
+    @TestAnnotationWithoutValue(
+        stringProperty = "a b,c",
+        intArrayProperty = {1, 2},
+        charProperty = 'z',
+        classArrayProperty = {String[].class, int.class},
+        enumProperty = MetasyntacticVariable.BAR,
+        annotationArrayProperty = {
+          @TestAnnotationWithValue("bar"),
+          @TestAnnotationWithValue(value = "baz", anotherProperty = "quix")
+        })
+    String field;
+
+    String plain;
+  }
+
+  private static AnnotationIndex index(String... lines) throws IOException {
+    String text = AnnotationIndex.HEADER + "\n" + String.join("\n", lines) + "\n";
+    return AnnotationIndex.read(
+        new ByteArrayInputStream(text.getBytes(UTF_8)), AnnotationIndexTest.class.getClassLoader());
+  }
+
+  @Test
+  void shouldReturnTypeAnnotationFromIndex() throws Exception {
+    // given
+    AnnotationIndex index =
+        index(
+            PACKAGE + "AnnotationIndexTest$Indexed",
+            PACKAGE
+                + "AnnotationIndexTest$Indexed\ttype\t@"
+                + PACKAGE
+                + "TestAnnotationWithValue(value=foo)");
+    // when
+    AnnotationMap<TestAnnotationWithValue> actual =
+        index.getTypeAnnotation(
+            PACKAGE + "AnnotationIndexTest$Indexed", TestAnnotationWithValue.class);
+    // then
+    assertThat(
+        actual.matches(Indexed.class.getAnnotation(TestAnnotationWithValue.class)), is(true));
+  }
+
+  @Test
+  void shouldDecodeEveryKindOfMemberValue() throws Exception {
+    // given
+    AnnotationIndex index =
+        index(
+            PACKAGE
+                + "AnnotationIndexTest$Indexed\tfield field\t@"
+                + PACKAGE
+                + "TestAnnotationWithoutValue(stringProperty=a+b%2Cc,intArrayProperty={1,2},charProperty=z,classArrayProperty={java.lang.String[],int},enumProperty=BAR,annotationArrayProperty={@"
+                + PACKAGE
+                + "TestAnnotationWithValue(value=bar),@"
+                + PACKAGE
+                + "TestAnnotationWithValue(value=baz,anotherProperty=quix)})");
+    // when
+    Map<String, AnnotationMap<TestAnnotationWithoutValue>> actual =
+        index.getFieldAnnotations(
+            PACKAGE + "AnnotationIndexTest$Indexed", TestAnnotationWithoutValue.class);
+    // then
+    TestAnnotationWithoutValue expected =
+        Indexed.class.getDeclaredField("field").getAnnotation(TestAnnotationWithoutValue.class);
+    assertThat(actual.keySet(), contains("field"));
+    assertThat(actual.get("field").matches(expected), is(true));
+    assertThat(actual.get("field"), is(AnnotationMap.of(expected)));
+  }
+
+  @Test
+  void shouldListClassesAnnotatedWithType() throws Exception {
+    // given
+    AnnotationIndex index =
+        index(
+            PACKAGE + "A",
+            PACKAGE + "B\tfield x\t@" + PACKAGE + "TestAnnotationWithValue(value=foo)",
+            PACKAGE + "C\ttype\t@" + PACKAGE + "TestAnnotationWithoutValue()");
+    // when
+    SortedSet<String> actual = index.getClassesAnnotatedWith(TestAnnotationWithValue.class);
+    // then
+    assertThat(actual, contains(PACKAGE + "B"));
+    assertThat(index.getClassNames(), contains(PACKAGE + "A", PACKAGE + "B", PACKAGE + "C"));
+  }
+
+  @Test
+  void shouldReturnIndependentCopiesOfDecodedMaps() throws Exception {
+    // given
+    AnnotationIndex index =
+        index(PACKAGE + "A\ttype\t@" + PACKAGE + "TestAnnotationWithValue(value=foo)");
+    // when
+    index.getTypeAnnotation(PACKAGE + "A", TestAnnotationWithValue.class).set("value", "bar");
+    // then
+    assertThat(
+        index
+            .getTypeAnnotation(PACKAGE + "A", TestAnnotationWithValue.class)
+            .get("value", String.class),
+        is("foo"));
+  }
+
+  @Test
+  void shouldThrowGivenUnknownMember() throws Exception {
+    // given
+    AnnotationIndex index =
+        index(PACKAGE + "A\ttype\t@" + PACKAGE + "TestAnnotationWithValue(nope=foo)");
+    // when
+    IllegalArgumentException actual =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> index.getTypeAnnotation(PACKAGE + "A", TestAnnotationWithValue.class));
+    // then
+    assertThat(actual.getMessage(), containsString("no member 'nope'"));
+  }
+
+  @Test
+  void shouldThrowGivenMissingHeader() {
+    assertThrows(
+        IOException.class,
+        () ->
+            AnnotationIndex.read(
+                new ByteArrayInputStream("x\n".getBytes(UTF_8)), getClass().getClassLoader()));
+  }
+}
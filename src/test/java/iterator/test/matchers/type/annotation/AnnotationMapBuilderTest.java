@@ -0,0 +1,81 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class AnnotationMapBuilderTest {
+
+  @TestAnnotationWithMetadata("foo")
+  static class Annotated {}
+
+  private static final TestAnnotationWithMetadata ANNOTATION =
+      Annotated.class.getAnnotation(TestAnnotationWithMetadata.class);
+
+  @Test
+  void shouldBuildMapEqualToMapOfAnnotation() {
+    // given
+    AnnotationMap<TestAnnotationWithMetadata> expected = AnnotationMap.of(ANNOTATION);
+    // when
+    AnnotationMap<TestAnnotationWithMetadata> actual =
+        TestAnnotationWithMetadataMap.builder().value("foo").build();
+    // then
+    assertThat(actual, is(equalTo(expected)));
+    assertThat(actual.fingerprint(), is(equalTo(AnnotationMap.fingerprint(ANNOTATION))));
+    assertThat(actual.matches(ANNOTATION), is(true));
+  }
+
+  @Test
+  void shouldKeepDefaultsOfMembersNotSet() {
+    // given
+    TestAnnotationWithMetadataMap.Builder builder = TestAnnotationWithMetadataMap.builder();
+    // when
+    AnnotationMap<TestAnnotationWithMetadata> actual = builder.value("foo").build();
+    // then
+    assertThat(actual.get("anotherProperty", String.class), is(equalTo("bar")));
+  }
+
+  @Test
+  void shouldNotChangeBuiltMapsWhenBuilderIsReused() {
+    // given
+    TestAnnotationWithMetadataMap.Builder builder = TestAnnotationWithMetadataMap.builder();
+    AnnotationMap<TestAnnotationWithMetadata> first = builder.value("foo").build();
+    // when
+    AnnotationMap<TestAnnotationWithMetadata> second = builder.anotherProperty("baz").build();
+    // then
+    assertThat(first.toString(), is(equalTo("@TestAnnotationWithMetadata(\"foo\")")));
+    assertThat(
+        second.toString(),
+        is(equalTo("@TestAnnotationWithMetadata(value = \"foo\", anotherProperty = \"baz\")")));
+  }
+
+  @Test
+  void shouldSynthesiseAnnotationEqualToCompiledAnnotation() {
+    // given
+    String[] names = {"value"};
+    Object[] members = {"foo"};
+    // when
+    TestAnnotationWithMetadata actual =
+        AnnotationMapBuilder.annotation(TestAnnotationWithMetadata.class, names, members);
+    // then
+    assertThat(actual, is(equalTo(ANNOTATION)));
+    assertThat(actual.hashCode(), is(equalTo(ANNOTATION.hashCode())));
+  }
+
+  @Test
+  void shouldRejectUnknownMembersOfSynthesisedAnnotation() {
+    // given
+    String[] names = {"valeu"};
+    Object[] members = {"foo"};
+    // when
+    IllegalArgumentException actual =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                AnnotationMapBuilder.annotation(TestAnnotationWithMetadata.class, names, members));
+    // then
+    assertThat(actual.getMessage(), is(equalTo("No such member: 'valeu'")));
+  }
+}
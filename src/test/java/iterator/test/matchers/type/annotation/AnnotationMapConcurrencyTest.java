@@ -0,0 +1,165 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@TestAnnotationWithValue("foo")
+class AnnotationMapConcurrencyTest {
+
+  private static final int THREADS = 8;
+
+  private static final int ITERATIONS = 2_000;
+
+  // shared the way suites share static expectations
+  private static final AnnotationMap<TestAnnotationWithValue> FOO =
+      AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo");
+
+  private static final AnnotationMap<TestAnnotationWithValue> BAR =
+      AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar");
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    executor.shutdownNow();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldMatchAndDescribeConsistentlyGivenSharedMatchers() throws Exception {
+    // given
+    Matcher<Class<AnnotationMapConcurrencyTest>> matching = new TypeAnnotationMatcher<>(FOO);
+    Matcher<Class<AnnotationMapConcurrencyTest>> mismatching = new TypeAnnotationMatcher<>(BAR);
+    // when
+    List<Boolean> actual =
+        hammer(
+            () -> {
+              for (int i = 0; i < ITERATIONS; i++) {
+                if (!matching.matches(AnnotationMapConcurrencyTest.class)) return false;
+                if (mismatching.matches(AnnotationMapConcurrencyTest.class)) return false;
+                Description description = new StringDescription();
+                mismatching.describeMismatch(AnnotationMapConcurrencyTest.class, description);
+                if (!description.toString().contains("expected \"bar\" but was \"foo\""))
+                  return false;
+              }
+              return true;
+            });
+    // then
+    assertThat(actual, everyItem(is(true)));
+  }
+
+  @Test
+  void shouldKeepSharedMapsIntactGivenConcurrentVariants() throws Exception {
+    // given
+    long foo = FOO.fingerprint();
+    // when
+    List<Boolean> actual =
+        hammer(
+            () -> {
+              for (int i = 0; i < ITERATIONS; i++) {
+                AnnotationMap<TestAnnotationWithValue> variant = FOO.with("value", "v" + i);
+                if (variant.equals(FOO) || FOO.fingerprint() != foo) return false;
+                if (!variant.with("value", "foo").equals(FOO)) return false;
+              }
+              return true;
+            });
+    // then
+    assertThat(actual, everyItem(is(true)));
+    assertThat(FOO.get("value", String.class), is("foo"));
+  }
+
+  @Test
+  void shouldAlwaysObserveWholeSnapshotGivenConcurrentSet() throws Exception {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> shared =
+        AnnotationMap.from(TestAnnotationWithoutValue.class);
+    AnnotationMap<TestAnnotationWithoutValue> first =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("intProperty", 1)
+            .set("stringProperty", "first");
+    AnnotationMap<TestAnnotationWithoutValue> second =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("intProperty", 2)
+            .set("stringProperty", "second");
+    AtomicBoolean stopped = new AtomicBoolean();
+    AtomicInteger writes = new AtomicInteger();
+    CountDownLatch writing = new CountDownLatch(1);
+    Future<?> writer =
+        executor.submit(
+            () -> {
+              for (int i = 0; !stopped.get(); i++) {
+                AnnotationMap<TestAnnotationWithoutValue> next = i % 2 == 0 ? first : second;
+                shared.set("intProperty", next.get("intProperty", Integer.class));
+                shared.set("stringProperty", next.get("stringProperty", String.class));
+                writes.incrementAndGet();
+                writing.countDown();
+              }
+            });
+    writing.await();
+    // when
+    List<Boolean> actual =
+        hammer(
+            () -> {
+              for (int i = 0; i < ITERATIONS; i++) {
+                // a snapshot taken mid-update may be neither, but its fingerprint must agree
+                // with its values
+                AnnotationMap<TestAnnotationWithoutValue> copy =
+                    shared.with("booleanProperty", false);
+                AnnotationMap<TestAnnotationWithoutValue> rebuilt =
+                    AnnotationMap.from(TestAnnotationWithoutValue.class)
+                        .set("booleanProperty", false)
+                        .set("intProperty", copy.get("intProperty", Integer.class))
+                        .set("stringProperty", copy.get("stringProperty", String.class));
+                if (copy.fingerprint() != rebuilt.fingerprint() || !copy.equals(rebuilt))
+                  return false;
+              }
+              return true;
+            });
+    stopped.set(true);
+    writer.get(60, TimeUnit.SECONDS);
+    // then
+    assertThat(actual, everyItem(is(true)));
+    assertThat(writes.get(), is(greaterThan(0)));
+    assertThat(shared, is(anyOf(equalTo(first), equalTo(second))));
+  }
+
+  private List<Boolean> hammer(Callable<Boolean> task) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS - 1; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                return task.call();
+              }));
+    }
+    start.countDown();
+    List<Boolean> results = new ArrayList<>();
+    for (Future<Boolean> future : futures) results.add(future.get(60, TimeUnit.SECONDS));
+    return results;
+  }
+}
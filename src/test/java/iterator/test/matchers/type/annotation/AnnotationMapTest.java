@@ -5,6 +5,8 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.lang.annotation.Annotation;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import iterator.Reflection;
 import org.junit.jupiter.api.Test;
@@ -664,6 +666,370 @@ class AnnotationMapTest {
     assertThat(actual, is(expected));
   }
 
+  @Test
+  void shouldReturnSameFingerprintGivenMapOfAnnotationWhenFingerprintOfAnnotation() {
+    // given
+    TestAnnotationWithoutDefaults annotation =
+        anno("annotationWithoutDefaults", TestAnnotationWithoutDefaults.class);
+    // when
+    long actual = AnnotationMap.fingerprint(annotation);
+    // then
+    assertThat(actual, is(AnnotationMap.of(annotation).fingerprint()));
+  }
+
+  @Test
+  void shouldReturnSameFingerprintGivenEqualMaps() {
+    // given
+    AnnotationMap<TestAnnotationWithValue> map =
+        AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar");
+    AnnotationMap<TestAnnotationWithValue> other =
+        AnnotationMap.of(anno("annotationWithValue", TestAnnotationWithValue.class));
+    // when
+    long actual = map.fingerprint();
+    // then
+    assertThat(actual, is(other.fingerprint()));
+  }
+
+  @Test
+  void shouldReturnStableFingerprint() {
+    // given
+    AnnotationMap<TestAnnotationWithValue> map =
+        AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar");
+    // when
+    long actual = map.fingerprint();
+    // then
+    assertThat(actual, is(4315280631821734556L));
+  }
+
+  @Test
+  void shouldChangeFingerprintWhenSet() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.of(anno("annotated", TestAnnotationWithoutValue.class));
+    long before = map.fingerprint();
+    // when
+    map.set("intArrayProperty", new Integer[] {2, 1, 4});
+    // then
+    assertThat(map.fingerprint(), is(not(before)));
+  }
+
+  @Test
+  void shouldReturnVariantWithoutChangingParentWhenWith() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> parent =
+        AnnotationMap.from(TestAnnotationWithoutValue.class);
+    long before = parent.fingerprint();
+    // when
+    AnnotationMap<TestAnnotationWithoutValue> variant = parent.with("intProperty", 7);
+    // then
+    assertThat(variant.get("intProperty", Integer.class), is(7));
+    assertThat(parent.get("intProperty", Integer.class), is(42));
+    assertThat(parent.fingerprint(), is(before));
+    AnnotationMap<TestAnnotationWithoutValue> expected =
+        AnnotationMap.from(TestAnnotationWithoutValue.class).set("intProperty", 7);
+    assertThat(variant.fingerprint(), is(expected.fingerprint()));
+  }
+
+  @Test
+  void shouldNotChangeParentWhenSetOnVariant() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> parent =
+        AnnotationMap.of(anno("annotated", TestAnnotationWithoutValue.class));
+    AnnotationMap<TestAnnotationWithoutValue> variant = parent.with("intProperty", 7);
+    // when
+    variant.set("stringProperty", "bar");
+    // then
+    assertThat(parent.get("stringProperty", String.class), is("foo"));
+    assertThat(variant.get("stringProperty", String.class), is("bar"));
+  }
+
+  @Test
+  void shouldThrowGivenWrongTypeWhenWith() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class);
+    // when
+    IllegalArgumentException actual =
+        assertThrows(IllegalArgumentException.class, () -> map.with("intProperty", "seven"));
+    // then
+    assertThat(
+        actual.getMessage(),
+        is(
+            "Cannot get member 'intProperty' of type 'class java.lang.Integer' as requested type: 'class java.lang.String'"));
+  }
+
+  @Test
+  void shouldReturnMapGivenMembersWhenFromMap() {
+    // given
+    Map<String, Object> members = new LinkedHashMap<>();
+    members.put("intProperty", 7);
+    members.put("stringProperty", "bar");
+    // when
+    AnnotationMap<TestAnnotationWithoutValue> actual =
+        AnnotationMap.from(TestAnnotationWithoutValue.class, members);
+    // then
+    assertThat(
+        actual,
+        is(
+            AnnotationMap.from(TestAnnotationWithoutValue.class)
+                .set("intProperty", 7)
+                .set("stringProperty", "bar")));
+  }
+
+  @Test
+  void shouldReturnMapGivenNamesAndValuesWhenFrom() {
+    // when
+    AnnotationMap<TestAnnotationWithValue> actual =
+        AnnotationMap.from(
+            TestAnnotationWithValue.class, new String[] {"value"}, new Object[] {"bar"});
+    // then
+    assertThat(actual.get("value", String.class), is("bar"));
+  }
+
+  @Test
+  void shouldReportEveryInvalidMemberWhenFromMap() {
+    // given
+    Map<String, Object> members = new LinkedHashMap<>();
+    members.put("intProperty", "seven");
+    members.put("noSuchProperty", 1);
+    members.put("booleanProperty", null);
+    // when
+    IllegalArgumentException actual =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> AnnotationMap.from(TestAnnotationWithoutValue.class, members));
+    // then
+    assertThat(
+        actual.getMessage(),
+        is(
+            "Invalid members for @TestAnnotationWithoutValue: Cannot get member 'intProperty' of type 'class java.lang.Integer' as requested type: 'class java.lang.String'; No such member: 'noSuchProperty'; Cannot set member 'booleanProperty' of type 'Boolean' null"));
+  }
+
+  @Test
+  void shouldThrowGivenMismatchedLengthsWhenFrom() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            AnnotationMap.from(
+                TestAnnotationWithValue.class, new String[] {"value"}, new Object[0]));
+  }
+
+  @Test
+  void shouldMatchAnnotationGivenEqualValues() {
+    // given
+    AnnotationMap<TestAnnotationWithValue> map =
+        AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar");
+    // when
+    boolean actual = map.matches(anno("annotationWithValue", TestAnnotationWithValue.class));
+    // then
+    assertThat(actual, is(true));
+  }
+
+  @Test
+  void shouldNotMatchAnnotationGivenDifferentValues() {
+    // given
+    AnnotationMap<TestAnnotationWithValue> map =
+        AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo");
+    // when
+    boolean actual = map.matches(anno("annotationWithValue", TestAnnotationWithValue.class));
+    // then
+    assertThat(actual, is(false));
+  }
+
+  @Test
+  void shouldMatchAnnotationGivenEqualPrimitiveArray() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("intArrayProperty", new Integer[] {3, 2, 1});
+    // when
+    boolean actual =
+        map.matches(anno("intArrayPropertySample", TestAnnotationWithoutValue.class));
+    // then
+    assertThat(actual, is(true));
+  }
+
+  @Test
+  void shouldNotMatchAnnotationGivenDifferentPrimitiveArray() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("intArrayProperty", new Integer[] {3, 2});
+    // when
+    boolean actual =
+        map.matches(anno("intArrayPropertySample", TestAnnotationWithoutValue.class));
+    // then
+    assertThat(actual, is(false));
+  }
+
+  @Test
+  void shouldMatchAnnotationGivenEqualNestedAnnotations() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.of(anno("annotationArrayPropertySample", TestAnnotationWithoutValue.class));
+    // when
+    boolean matches =
+        map.matches(anno("annotationArrayPropertySample", TestAnnotationWithoutValue.class));
+    boolean differs = map.matches(anno("annotated", TestAnnotationWithoutValue.class));
+    // then
+    assertThat(matches, is(true));
+    assertThat(differs, is(false));
+  }
+
+  @Test
+  void shouldReturnEmptyDiffGivenEqualMaps() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.of(anno("annotated", TestAnnotationWithoutValue.class));
+    // when
+    AnnotationMapDiff actual = map.diff(AnnotationMap.from(TestAnnotationWithoutValue.class));
+    // then
+    assertThat(actual.isEmpty(), is(true));
+  }
+
+  @Test
+  void shouldReturnChangedMembersWhenDiff() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class).set("stringProperty", "BAZ");
+    // when
+    AnnotationMapDiff actual =
+        map.diff(AnnotationMap.of(anno("bytePropertySample", TestAnnotationWithoutValue.class)));
+    // then
+    assertThat(
+        actual.toString(),
+        is(
+            "@TestAnnotationWithoutValue(byteProperty: expected 4 but was 42, stringProperty: expected \"BAZ\" but was \"foo\")"));
+  }
+
+  @Test
+  void shouldReturnFirstDifferingArrayIndexWhenDiff() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("charArrayProperty", new Character[] {'f', 'o', 'x'});
+    // when
+    AnnotationMapDiff actual =
+        map.diff(
+            AnnotationMap.of(anno("charArrayPropertySample", TestAnnotationWithoutValue.class)));
+    // then
+    assertThat(actual.getDifferences(), hasSize(1));
+    assertThat(actual.getDifferences().get(0).getPath(), is("charArrayProperty[2]"));
+    assertThat(actual.getDifferences().get(0).getExpected(), is("'x'"));
+    assertThat(actual.getDifferences().get(0).getActual(), is("'o'"));
+  }
+
+  @Test
+  void shouldReturnArrayLengthGivenCommonPrefixWhenDiff() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("stringArrayProperty", new String[] {"foo", "bar"});
+    // when
+    AnnotationMapDiff actual =
+        map.diff(
+            AnnotationMap.of(anno("stringArrayPropertySample", TestAnnotationWithoutValue.class)));
+    // then
+    assertThat(
+        actual.toString(),
+        is("@TestAnnotationWithoutValue(stringArrayProperty.length: expected 2 but was 3)"));
+  }
+
+  @Test
+  void shouldReturnNestedAnnotationPathWhenDiff() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.of(anno("annotationArrayPropertySample", TestAnnotationWithoutValue.class));
+    AnnotationMap<TestAnnotationWithoutValue> other =
+        AnnotationMap.of(anno("annotationPropertySample", TestAnnotationWithoutValue.class));
+    // when
+    AnnotationMapDiff actual = map.diff(other);
+    // then
+    assertThat(
+        actual.toString(),
+        is(
+            "@TestAnnotationWithoutValue(annotationArrayProperty[0].value: expected \"bar\" but was \"foo\", annotationProperty.value: expected \"foo\" but was \"bar\")"));
+  }
+
+  @Test
+  void shouldStopAtLimitWhenDiff() {
+    // given
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("booleanProperty", false)
+            .set("intProperty", 1)
+            .set("longProperty", 2L);
+    // when
+    AnnotationMapDiff actual = map.diff(AnnotationMap.from(TestAnnotationWithoutValue.class), 2);
+    // then
+    assertThat(actual.getDifferences(), hasSize(2));
+    assertThat(actual.isTruncated(), is(true));
+    assertThat(actual.toString(), endsWith(", ...)"));
+  }
+
+  @Test
+  void shouldReturnAnnotationEqualToCompiledAnnotationWhenToAnnotation() {
+    // given
+    TestAnnotationWithoutValue expected =
+        anno("intArrayPropertySample", TestAnnotationWithoutValue.class);
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("intArrayProperty", new Integer[] {3, 2, 1});
+    // when
+    TestAnnotationWithoutValue actual = map.toAnnotation();
+    // then
+    assertThat(actual, is(equalTo(expected)));
+    assertThat(expected, is(equalTo(actual)));
+    assertThat(actual.hashCode(), is(equalTo(expected.hashCode())));
+    assertThat(actual.annotationType(), is(equalTo(TestAnnotationWithoutValue.class)));
+    assertThat(actual.intArrayProperty(), is(equalTo(new int[] {3, 2, 1})));
+    assertThat(actual.toString(), is(equalTo(map.toString())));
+    assertThat(map.matches(actual), is(true));
+  }
+
+  @Test
+  void shouldReturnSameAnnotationUntilMemberIsSetWhenToAnnotation() {
+    // given
+    AnnotationMap<TestAnnotationWithValue> map =
+        AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo");
+    TestAnnotationWithValue first = map.toAnnotation();
+    // when
+    TestAnnotationWithValue second = map.toAnnotation();
+    map.set("value", "bar");
+    TestAnnotationWithValue third = map.toAnnotation();
+    // then
+    assertThat(second, is(sameInstance(first)));
+    assertThat(third, is(not(equalTo(first))));
+    assertThat(third.value(), is(equalTo("bar")));
+    assertThat(map.with("value", "foo").toAnnotation(), is(equalTo(first)));
+  }
+
+  @Test
+  void shouldReturnOriginalAnnotationWhenToAnnotationGivenMapOfAnnotation() {
+    // given
+    TestAnnotationWithoutValue annotation =
+        anno("annotationArrayPropertySample", TestAnnotationWithoutValue.class);
+    // when
+    TestAnnotationWithoutValue actual = AnnotationMap.of(annotation).toAnnotation();
+    // then
+    assertThat(actual, is(sameInstance(annotation)));
+  }
+
+  @Test
+  void shouldSynthesiseNestedAnnotationsWhenToAnnotation() {
+    // given
+    TestAnnotationWithoutValue expected =
+        anno("annotationArrayPropertySample", TestAnnotationWithoutValue.class);
+    AnnotationMap<TestAnnotationWithoutValue> map =
+        AnnotationMap.from(TestAnnotationWithoutValue.class)
+            .set("annotationArrayProperty", expected.annotationArrayProperty());
+    // when
+    TestAnnotationWithoutValue actual = map.toAnnotation();
+    // then
+    assertThat(actual, is(equalTo(expected)));
+    assertThat(actual.hashCode(), is(equalTo(expected.hashCode())));
+  }
+
   private static <A extends Annotation> A anno(String fieldName, Class<A> annotationClass) {
     return Reflection.findFieldAnnotation(AnnotationMapTest.class, fieldName, annotationClass);
   }
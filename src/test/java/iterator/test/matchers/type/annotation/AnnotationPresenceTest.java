@@ -0,0 +1,51 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.jupiter.api.Test;
+
+class AnnotationPresenceTest {
+
+  @TestAnnotationWithValue("foo")
+  static class Parent {
+
+    @TestAnnotationWithoutValue String field;
+  }
+
+  static class Child extends Parent {}
+
+  static class Unannotated {
+
+    String field;
+  }
+
+  @Test
+  void shouldReportTypeAnnotationPresent() {
+    assertThat(AnnotationPresence.onType(Parent.class, TestAnnotationWithValue.class), is(true));
+  }
+
+  @Test
+  void shouldReportInheritedTypeAnnotationPresent() {
+    assertThat(AnnotationPresence.onType(Child.class, TestAnnotationWithValue.class), is(true));
+  }
+
+  @Test
+  void shouldReportInheritedFieldAnnotationPresent() {
+    assertThat(
+        AnnotationPresence.onFields(Child.class, TestAnnotationWithoutValue.class), is(true));
+  }
+
+  @Test
+  void shouldReportFieldAnnotationAbsentFromType() {
+    assertThat(AnnotationPresence.onType(Child.class, TestAnnotationWithoutValue.class), is(false));
+  }
+
+  @Test
+  void shouldReportAnnotationAbsentGivenUnannotatedClass() {
+    assertThat(
+        AnnotationPresence.onType(Unannotated.class, TestAnnotationWithValue.class), is(false));
+    assertThat(
+        AnnotationPresence.onFields(Unannotated.class, TestAnnotationWithValue.class), is(false));
+  }
+}
@@ -0,0 +1,149 @@
+package iterator.test.matchers.type.annotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnnotationRuleEngineTest {
+
+  @TestAnnotationWithValue("foo")
+  static class Compliant {
+
+    @TestAnnotationWithValue("foo")
+    String field;
+  }
+
+  @TestAnnotationWithValue("bar")
+  static class Offending {
+
+    String field;
+  }
+
+  static class Unannotated {}
+
+  private static final AnnotationRule TYPE_RULE =
+      AnnotationRule.named("type")
+          .inPackage("iterator.test.matchers.type.annotation")
+          .matching(type -> type.getEnclosingClass() == AnnotationRuleEngineTest.class)
+          .requiringOnType(AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"));
+
+  private static final AnnotationRule FIELD_RULE =
+      AnnotationRule.named("fields")
+          .matching(type -> type.getEnclosingClass() == AnnotationRuleEngineTest.class)
+          .requiringOnFields(
+              field -> field.getName().equals("field"),
+              AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"));
+
+  @Test
+  void shouldReportEveryViolationOfEveryRuleInOnePass() {
+    // given
+    AnnotationRuleEngine engine = new AnnotationRuleEngine(TYPE_RULE, FIELD_RULE);
+    // when
+    AnnotationRuleReport actual =
+        engine.evaluate(Arrays.asList(Unannotated.class, Offending.class, Compliant.class));
+    // then
+    assertThat(actual.getClassesEvaluated(), is(3));
+    assertThat(actual.isPassing(), is(false));
+    assertThat(
+        messages(actual),
+        contains(
+            "[fields] iterator.test.matchers.type.annotation.AnnotationRuleEngineTest$Offending field 'field' of Offending: expected @TestAnnotationWithValue(\"foo\") but was null",
+            "[type] iterator.test.matchers.type.annotation.AnnotationRuleEngineTest$Offending type: @TestAnnotationWithValue(value: expected \"foo\" but was \"bar\")",
+            "[type] iterator.test.matchers.type.annotation.AnnotationRuleEngineTest$Unannotated type: expected @TestAnnotationWithValue(\"foo\") but was null"));
+  }
+
+  @Test
+  void shouldPassGivenCompliantClasses() {
+    // given
+    AnnotationRuleEngine engine = new AnnotationRuleEngine(TYPE_RULE, FIELD_RULE);
+    // when
+    AnnotationRuleReport actual = engine.evaluate(Arrays.asList(Compliant.class));
+    // then
+    assertThat(actual.isPassing(), is(true));
+  }
+
+  @Test
+  void shouldScanJarWithoutLoadingClassesOutsideRulePackages(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Offending.class, Compliant.class);
+    AnnotationRuleEngine engine =
+        new AnnotationRuleEngine(
+            AnnotationRule.named("elsewhere")
+                .inPackage("com.example")
+                .requiringOnType(AnnotationMap.from(TestAnnotationWithValue.class)),
+            TYPE_RULE);
+    // when
+    AnnotationRuleReport actual = engine.scan(getClass().getClassLoader(), jar);
+    // then
+    assertThat(actual.getClassesEvaluated(), is(2));
+    assertThat(actual.getViolations(), hasSize(1));
+    assertThat(actual.getViolations().get(0).getTarget(), endsWith("$Offending"));
+  }
+
+  @Test
+  void shouldScanClassesListedInIndex() throws Exception {
+    // given
+    String index =
+        String.join(
+            "\n",
+            AnnotationIndex.HEADER,
+            Offending.class.getName(),
+            Compliant.class.getName(),
+            "com.example.Elsewhere");
+    AnnotationRuleEngine engine = new AnnotationRuleEngine(TYPE_RULE);
+    // when
+    AnnotationRuleReport actual =
+        engine.scan(
+            getClass().getClassLoader(),
+            AnnotationIndex.read(
+                new ByteArrayInputStream(index.getBytes(UTF_8)), getClass().getClassLoader()));
+    // then
+    assertThat(actual.getClassesEvaluated(), is(2));
+    assertThat(actual.getViolations(), hasSize(1));
+  }
+
+  @Test
+  void shouldReportUnloadableClasses(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Compliant.class);
+    AnnotationRuleEngine engine = new AnnotationRuleEngine(TYPE_RULE);
+    // when
+    AnnotationRuleReport actual = engine.scan(ClassLoader.getPlatformClassLoader(), jar);
+    // then
+    assertThat(actual.getUnloadable(), contains(Compliant.class.getName()));
+    assertThat(actual.isPassing(), is(false));
+  }
+
+  @Test
+  void shouldReportClassWithUnreadableAnnotationsAsUnloadable() {
+    // given
+    AnnotationRule broken =
+        AnnotationRule.named("broken")
+            .matching(
+                type -> {
+                  if (type == Offending.class) throw new TypeNotPresentException("Missing", null);
+                  return true;
+                })
+            .requiringOnType(AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"));
+    AnnotationRuleEngine engine = new AnnotationRuleEngine(broken);
+    // when
+    AnnotationRuleReport actual = engine.evaluate(Arrays.asList(Compliant.class, Offending.class));
+    // then
+    assertThat(actual.getClassesEvaluated(), is(1));
+    assertThat(actual.getUnloadable(), contains(Offending.class.getName()));
+    assertThat(actual.getViolations(), is(empty()));
+  }
+
+  private static List<String> messages(AnnotationRuleReport report) {
+    return report.getViolations().stream().map(Object::toString).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,258 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.UncheckedIOException;
+import java.lang.annotation.Retention;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnnotationScanPipelineTest {
+
+  @TestAnnotationWithValue("foo")
+  static class Compliant {}
+
+  @TestAnnotationWithValue("bar")
+  static class Offending {
+
+    @TestAnnotationWithValue("bar")
+    String field;
+  }
+
+  static class Unannotated {}
+
+  private static final TypeAnnotationMatcher<TestAnnotationWithValue, Object> MATCHER =
+      new TypeAnnotationMatcher<>(
+          AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"));
+
+  private static Path testClasses() throws Exception {
+    return Paths.get(
+        AnnotationScanPipelineTest.class
+            .getProtectionDomain()
+            .getCodeSource()
+            .getLocation()
+            .toURI());
+  }
+
+  private static String line(Class<?> type) {
+    return String.format(
+        "%s\t%s\t%s",
+        type.getName(),
+        AnnotationIndex.TYPE,
+        AnnotationIndex.encode(type.getAnnotation(TestAnnotationWithValue.class)));
+  }
+
+  private static List<String> targets(AnnotationRuleReport report) {
+    return report.getViolations().stream()
+        .map(AnnotationRuleReport.Violation::getTarget)
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  void shouldReportClassesDeclaringTheAnnotationThatDoNotMatch(@TempDir Path dir) throws Exception {
+    // given
+    Path jar =
+        AnnotationBloomFilterTest.jarOf(dir, Compliant.class, Offending.class, Unannotated.class);
+    AnnotationScanPipeline pipeline =
+        new AnnotationScanPipeline(Collections.singletonList(MATCHER));
+    // when
+    AnnotationRuleReport actual = pipeline.scan(getClass().getClassLoader(), jar);
+    // then
+    assertThat(actual.getClassesEvaluated(), is(2));
+    assertThat(
+        actual.getViolations().stream().map(Object::toString).collect(Collectors.toList()),
+        contains(
+            "[@TestAnnotationWithValue(\"foo\")] iterator.test.matchers.type.annotation.AnnotationScanPipelineTest$Offending type: @TestAnnotationWithValue(value: expected \"foo\" but was \"bar\")"));
+  }
+
+  @Test
+  void shouldDrainEveryStageGivenSingleSlotQueues() throws Exception {
+    // given
+    AnnotationScanPipeline pipeline =
+        new AnnotationScanPipeline(1, 1, Collections.singletonList(MATCHER));
+    // when
+    AnnotationRuleReport actual = pipeline.scan(getClass().getClassLoader(), testClasses());
+    // then
+    assertThat(actual.getClassesEvaluated(), is(greaterThan(2)));
+    assertThat(actual.getUnloadable(), is(empty()));
+    assertThat(targets(actual), hasItem(Offending.class.getName()));
+    assertThat(
+        targets(actual), not(hasItems(Compliant.class.getName(), Unannotated.class.getName())));
+  }
+
+  @Test
+  void shouldMatchEachClassAgainstEveryMatcherOfItsAnnotations(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Compliant.class, Offending.class);
+    TypeAnnotationMatcher<TestAnnotationWithValue, Object> bar =
+        new TypeAnnotationMatcher<>(
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar"));
+    AnnotationScanPipeline pipeline = new AnnotationScanPipeline(Arrays.asList(MATCHER, bar));
+    // when
+    AnnotationRuleReport actual = pipeline.scan(getClass().getClassLoader(), jar);
+    // then
+    assertThat(targets(actual), contains(Compliant.class.getName(), Offending.class.getName()));
+  }
+
+  @Test
+  void shouldCheckOnlyClassesIndexedWithMatchedAnnotations() {
+    // given
+    List<String> lines =
+        Arrays.asList(line(Compliant.class), line(Offending.class), Unannotated.class.getName());
+    AnnotationIndex index = AnnotationIndex.of(getClass().getClassLoader(), lines);
+    AnnotationScanPipeline pipeline =
+        new AnnotationScanPipeline(Collections.singletonList(MATCHER));
+    // when
+    AnnotationRuleReport actual = pipeline.scan(getClass().getClassLoader(), index);
+    // then
+    assertThat(actual.getClassesEvaluated(), is(2));
+    assertThat(targets(actual), contains(Offending.class.getName()));
+  }
+
+  @Test
+  void shouldSkipJarWhoseFilterRulesOutEveryMatcher(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.listingJarOf(dir, Retention.class);
+    SimpleAnnotationMetrics metrics = new SimpleAnnotationMetrics();
+    AnnotationScanPipeline pipeline =
+        new AnnotationScanPipeline(Collections.singletonList(MATCHER));
+    AnnotationMetrics.install(metrics);
+    // when
+    AnnotationRuleReport actual;
+    try {
+      actual = pipeline.scan(getClass().getClassLoader(), jar);
+    } finally {
+      AnnotationMetrics.install(null);
+    }
+    // then
+    assertThat(actual.getClassesEvaluated(), is(0));
+    assertThat(
+        metrics.getCacheStats(AnnotationMetrics.ANNOTATION_BLOOM_FILTER).getAccesses(), is(1L));
+  }
+
+  @Test
+  void shouldSummariseJarGivenFirstScan(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Unannotated.class);
+    AnnotationScanPipeline pipeline =
+        new AnnotationScanPipeline(Collections.singletonList(MATCHER));
+    // when
+    pipeline.scan(getClass().getClassLoader(), jar);
+    // then
+    AnnotationBloomFilter actual = AnnotationBloomFilter.cached(jar);
+    assertThat(actual, is(notNullValue()));
+    assertThat(actual.mightContain(TestAnnotationWithValue.class), is(false));
+  }
+
+  @Test
+  void shouldNameTheElementEachMatcherChecks(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Offending.class);
+    FieldAnnotationMatcher<TestAnnotationWithValue, Object> field =
+        new FieldAnnotationMatcher<>("field", MATCHER.getExpected());
+    AnnotationScanPipeline pipeline = new AnnotationScanPipeline(Arrays.asList(MATCHER, field));
+    // when
+    AnnotationRuleReport actual = pipeline.scan(getClass().getClassLoader(), jar);
+    // then
+    assertThat(
+        actual.getViolations().stream()
+            .map(AnnotationRuleReport.Violation::getElement)
+            .collect(Collectors.toList()),
+        containsInAnyOrder("type", "field 'field'"));
+  }
+
+  @Test
+  void shouldLookUpEachAnnotationOnce(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Offending.class);
+    AtomicInteger lookups = new AtomicInteger();
+    TypeAnnotationMatcher<TestAnnotationWithValue, Object> counting =
+        new TypeAnnotationMatcher<TestAnnotationWithValue, Object>(MATCHER.getExpected()) {
+          @Override
+          protected TestAnnotationWithValue findAnnotation(Class<Object> item) {
+            lookups.incrementAndGet();
+            return super.findAnnotation(item);
+          }
+        };
+    AnnotationScanPipeline pipeline =
+        new AnnotationScanPipeline(Collections.singletonList(counting));
+    // when
+    AnnotationRuleReport actual = pipeline.scan(getClass().getClassLoader(), jar);
+    // then
+    assertThat(actual.getViolations(), hasSize(1));
+    assertThat(lookups.get(), is(1));
+  }
+
+  @Test
+  void shouldReportClassWithUnreadableAnnotationsAsUnloadable(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Compliant.class, Offending.class);
+    TypeAnnotationMatcher<TestAnnotationWithValue, Object> broken =
+        new TypeAnnotationMatcher<TestAnnotationWithValue, Object>(MATCHER.getExpected()) {
+          @Override
+          protected TestAnnotationWithValue findAnnotation(Class<Object> item) {
+            if (item.equals(Offending.class)) throw new TypeNotPresentException("Missing", null);
+            return super.findAnnotation(item);
+          }
+        };
+    AnnotationScanPipeline pipeline = new AnnotationScanPipeline(Collections.singletonList(broken));
+    // when
+    AnnotationRuleReport actual = pipeline.scan(getClass().getClassLoader(), jar);
+    // then
+    assertThat(actual.getClassesEvaluated(), is(1));
+    assertThat(actual.getUnloadable(), contains(Offending.class.getName()));
+  }
+
+  @Test
+  void shouldRethrowFirstFailureOfAnyStage(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Compliant.class);
+    TypeAnnotationMatcher<TestAnnotationWithValue, Object> failing =
+        new TypeAnnotationMatcher<TestAnnotationWithValue, Object>(MATCHER.getExpected()) {
+          @Override
+          protected TestAnnotationWithValue findAnnotation(Class<Object> item) {
+            throw new IllegalStateException("boom");
+          }
+        };
+    AnnotationScanPipeline pipeline =
+        new AnnotationScanPipeline(Collections.singletonList(failing));
+    // when
+    IllegalStateException actual =
+        assertThrows(
+            IllegalStateException.class, () -> pipeline.scan(getClass().getClassLoader(), jar));
+    // then
+    assertThat(actual.getMessage(), is(equalTo("boom")));
+  }
+
+  @Test
+  void shouldThrowGivenMissingRoot(@TempDir Path dir) {
+    // given
+    AnnotationScanPipeline pipeline =
+        new AnnotationScanPipeline(Collections.singletonList(MATCHER));
+    // when
+    assertThrows(
+        UncheckedIOException.class,
+        () -> pipeline.scan(getClass().getClassLoader(), dir.resolve("missing.jar")));
+  }
+
+  @Test
+  void shouldThrowGivenNonPositiveQueueCapacity() {
+    // when
+    IllegalArgumentException actual =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new AnnotationScanPipeline(0, 1, Collections.singletonList(MATCHER)));
+    // then
+    assertThat(actual.getMessage(), is(equalTo("Queue capacity must be positive but was 0")));
+  }
+}
@@ -0,0 +1,229 @@
+package iterator.test.matchers.type.annotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnnotationSchemaTest {
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Adaptive {
+
+    int[] numbers() default {};
+
+    String text() default "";
+  }
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface AlsoIndexed {}
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Costed {
+
+    Adaptive annotation() default @Adaptive;
+
+    Adaptive[] annotations() default {};
+
+    boolean flag() default false;
+
+    int number() default 0;
+
+    long[] numbers() default {};
+
+    String text() default "";
+
+    Class<?> type() default Object.class;
+  }
+
+  @TestAnnotationWithMetadata("foo")
+  static class Defaulted {}
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Indexed {}
+
+  @TestAnnotationWithMetadata(value = "foo", anotherProperty = "baz")
+  static class Overridden {}
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Unregistered {}
+
+  @Test
+  void shouldOrderScalarsBeforeArraysBeforeAnnotations() {
+    // given
+    AnnotationSchema<Costed> schema = AnnotationSchema.create(Costed.class, null, false, false);
+    // when
+    List<String> actual = names(schema);
+    // then
+    assertThat(actual.subList(0, 2), containsInAnyOrder("flag", "number"));
+    assertThat(actual.subList(2, 4), containsInAnyOrder("text", "type"));
+    assertThat(actual.get(4), is("numbers"));
+    assertThat(actual.subList(5, 7), containsInAnyOrder("annotation", "annotations"));
+  }
+
+  @Test
+  void shouldPromoteMemberThatOftenDiffersWhenAdaptive() {
+    // given
+    AnnotationSchema<Adaptive> schema = AnnotationSchema.create(Adaptive.class, null, false, true);
+    assertThat(names(schema), contains("text", "numbers"));
+    // when
+    for (int i = 0; i < 16; i++) schema.recordDifference(schema.indexOf("numbers"));
+    // then
+    assertThat(names(schema), contains("numbers", "text"));
+  }
+
+  @Test
+  void shouldKeepComparisonOrderUnlessAdaptive() {
+    // given
+    AnnotationSchema<Adaptive> schema = AnnotationSchema.create(Adaptive.class, null, false, false);
+    // when
+    for (int i = 0; i < 16; i++) schema.recordDifference(schema.indexOf("numbers"));
+    // then
+    assertThat(names(schema), contains("text", "numbers"));
+  }
+
+  @Test
+  void shouldRefuseReflectionWithoutGeneratedMetadataWhenReflectionFree() {
+    // given
+    Class<Adaptive> type = Adaptive.class;
+    // when
+    IllegalStateException actual =
+        assertThrows(
+            IllegalStateException.class, () -> AnnotationSchema.create(type, null, true, false));
+    // then
+    assertThat(actual.getMessage(), containsString("iterator.test.matchers.reflectionFree"));
+  }
+
+  @Test
+  void shouldDescribeMembersAlikeWithAndWithoutReflection() {
+    // given
+    AnnotationSchema<TestAnnotationWithMetadata> reflective =
+        AnnotationSchema.create(TestAnnotationWithMetadata.class, null, false, false);
+    // when
+    AnnotationSchema<TestAnnotationWithMetadata> generated =
+        AnnotationSchema.create(
+            TestAnnotationWithMetadata.class, new TestAnnotationWithMetadataMap(), true, false);
+    // then
+    assertThat(reflective.isReflective(), is(true));
+    assertThat(generated.isReflective(), is(false));
+    assertThat(AnnotationSchema.of(TestAnnotationWithMetadata.class).isReflective(), is(false));
+    assertThat(AnnotationSchema.of(TestAnnotationWithValue.class).isReflective(), is(true));
+    assertThat(generated.size(), is(equalTo(reflective.size())));
+    for (int i = 0; i < reflective.size(); i++) {
+      assertThat(generated.getName(i), is(equalTo(reflective.getName(i))));
+      assertThat(generated.getType(i), is(equalTo(reflective.getType(i))));
+      assertThat(generated.getDefault(i), is(equalTo(reflective.getDefault(i))));
+    }
+  }
+
+  @Test
+  void shouldMatchAlikeWithAndWithoutReflection() {
+    // given
+    AnnotationSchema<TestAnnotationWithMetadata> reflective =
+        AnnotationSchema.create(TestAnnotationWithMetadata.class, null, false, false);
+    AnnotationSchema<TestAnnotationWithMetadata> generated =
+        AnnotationSchema.create(
+            TestAnnotationWithMetadata.class, new TestAnnotationWithMetadataMap(), true, false);
+    Object[] members = {"bar", "foo"};
+    // when
+    AnnotationMap<TestAnnotationWithMetadata> withReflection =
+        AnnotationMap.ofMembers(reflective, members);
+    AnnotationMap<TestAnnotationWithMetadata> withoutReflection =
+        AnnotationMap.ofMembers(generated, members);
+    // then
+    for (Class<?> type : Arrays.asList(Defaulted.class, Overridden.class)) {
+      TestAnnotationWithMetadata annotation = type.getAnnotation(TestAnnotationWithMetadata.class);
+      assertThat(
+          withoutReflection.matches(annotation), is(equalTo(withReflection.matches(annotation))));
+      assertThat(
+          withoutReflection.diff(AnnotationMap.of(annotation)).toString(),
+          is(equalTo(withReflection.diff(AnnotationMap.of(annotation)).toString())));
+      for (int i = 0; i < generated.size(); i++)
+        assertThat(
+            generated.getValue(annotation, i), is(equalTo(reflective.getValue(annotation, i))));
+    }
+    assertThat(withoutReflection.fingerprint(), is(equalTo(withReflection.fingerprint())));
+    assertThat(withoutReflection.toString(), is(equalTo(withReflection.toString())));
+  }
+
+  @Test
+  void shouldKeepBrokenRegistrationAsCauseGivenNoMetadataWithoutReflection(@TempDir Path dir)
+      throws Exception {
+    // given
+    Path services = dir.resolve("services");
+    Files.write(services, Arrays.asList("no.such.Metadata"), UTF_8);
+    ClassLoader broken =
+        new ClassLoader(getClass().getClassLoader()) {
+          @Override
+          public Enumeration<URL> getResources(String name) throws IOException {
+            if (name.endsWith(AnnotationMetadata.class.getName()))
+              return Collections.enumeration(Arrays.asList(services.toUri().toURL()));
+            return super.getResources(name);
+          }
+        };
+    Thread thread = Thread.currentThread();
+    ClassLoader context = thread.getContextClassLoader();
+    thread.setContextClassLoader(broken);
+    // when
+    IllegalStateException actual;
+    try {
+      actual =
+          assertThrows(
+              IllegalStateException.class,
+              () -> AnnotationSchema.create(Unregistered.class, null, true, false));
+    } finally {
+      thread.setContextClassLoader(context);
+    }
+    // then
+    assertThat(actual.getCause(), is(instanceOf(ServiceConfigurationError.class)));
+  }
+
+  @Test
+  void shouldLookUpProvidersOncePerLoader() throws Exception {
+    // given
+    AtomicInteger lookups = new AtomicInteger();
+    ClassLoader counting =
+        new ClassLoader(getClass().getClassLoader()) {
+          @Override
+          public Enumeration<URL> getResources(String name) throws IOException {
+            if (name.endsWith(AnnotationMetadata.class.getName())) lookups.incrementAndGet();
+            return super.getResources(name);
+          }
+        };
+    Thread thread = Thread.currentThread();
+    ClassLoader context = thread.getContextClassLoader();
+    thread.setContextClassLoader(counting);
+    // when
+    try {
+      AnnotationSchema.of(Indexed.class);
+      AnnotationSchema.of(AlsoIndexed.class);
+    } finally {
+      thread.setContextClassLoader(context);
+    }
+    // then
+    assertThat(lookups.get(), is(1));
+  }
+
+  private static List<String> names(AnnotationSchema<?> schema) {
+    return Arrays.stream(schema.getComparisonOrder())
+        .mapToObj(schema::getName)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,154 @@
+package iterator.test.matchers.type.annotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class AnnotationSnapshotTest {
+
+  @TestAnnotationWithValue("a")
+  static class A {
+
+    @TestAnnotationWithValue("field")
+    String field;
+
+    @TestAnnotationWithValue("method")
+    void method(String arg) {}
+  }
+
+  @TestAnnotationWithValue("b")
+  static class B {}
+
+  @TestAnnotationWithValue("c")
+  static class C {}
+
+  private static byte[] snapshot(Class<?>... classes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AnnotationSnapshot.write(Arrays.asList(classes), out);
+    return out.toByteArray();
+  }
+
+  private static byte[] gzip(String text) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+      zip.write(text.getBytes(UTF_8));
+    }
+    return out.toByteArray();
+  }
+
+  private static List<String> compare(byte[] snapshot, Class<?>... classes) throws IOException {
+    List<String> differences = new ArrayList<>();
+    long count =
+        AnnotationSnapshot.compare(
+            new ByteArrayInputStream(snapshot), Arrays.asList(classes), differences::add);
+    assertThat(count, is((long) differences.size()));
+    return differences;
+  }
+
+  @Test
+  void shouldReportNoDifferencesGivenUnchangedSurface() throws Exception {
+    // given
+    byte[] snapshot = snapshot(A.class, B.class);
+    // when
+    List<String> actual = compare(snapshot, A.class, B.class);
+    // then
+    assertThat(actual, is(empty()));
+  }
+
+  @Test
+  void shouldReportRemovedAndAddedClasses() throws Exception {
+    // given
+    byte[] snapshot = snapshot(A.class, B.class);
+    // when
+    List<String> actual = compare(snapshot, A.class, C.class);
+    // then
+    assertThat(
+        actual,
+        contains(
+            B.class.getName() + " type: expected @TestAnnotationWithValue(\"b\") but was null",
+            C.class.getName() + " type: expected null but was @TestAnnotationWithValue(\"c\")"));
+  }
+
+  @Test
+  void shouldReportChangedAnnotationLikeMismatch() throws Exception {
+    // given
+    byte[] snapshot =
+        gzip(
+            String.join(
+                "\n",
+                "# annotation snapshot 1",
+                B.class.getName(),
+                "\ttype\t"
+                    + TestAnnotationWithValue.class.getName()
+                    + "\t@TestAnnotationWithValue(\"\\tbefore\")",
+                ""));
+    // when
+    List<String> actual = compare(snapshot, B.class);
+    // then
+    assertThat(
+        actual,
+        contains(
+            B.class.getName()
+                + " type: expected @TestAnnotationWithValue(\"\tbefore\") but was @TestAnnotationWithValue(\"b\")"));
+  }
+
+  @Test
+  void shouldReportMemberAnnotations() throws Exception {
+    // given
+    byte[] snapshot = snapshot(A.class);
+    // when
+    List<String> actual = compare(snapshot);
+    // then
+    assertThat(
+        actual,
+        containsInAnyOrder(
+            A.class.getName() + " type: expected @TestAnnotationWithValue(\"a\") but was null",
+            A.class.getName()
+                + " field field: expected @TestAnnotationWithValue(\"field\") but was null",
+            A.class.getName()
+                + " method method(java.lang.String): expected @TestAnnotationWithValue(\"method\") but was null"));
+  }
+
+  @Test
+  void shouldLeaveCallersStreamsOpen() throws Exception {
+    // given
+    AtomicBoolean closed = new AtomicBoolean();
+    ByteArrayOutputStream out =
+        new ByteArrayOutputStream() {
+          @Override
+          public void close() {
+            closed.set(true);
+          }
+        };
+    ByteArrayInputStream in =
+        new ByteArrayInputStream(snapshot(A.class)) {
+          @Override
+          public void close() {
+            closed.set(true);
+          }
+        };
+    // when
+    AnnotationSnapshot.write(Arrays.asList(A.class), out);
+    AnnotationSnapshot.compare(in, Arrays.asList(A.class), difference -> {});
+    // then
+    assertThat(closed.get(), is(false));
+    assertThat(compare(out.toByteArray(), A.class), is(empty()));
+  }
+
+  @Test
+  void shouldThrowGivenClassesOutOfOrder() {
+    assertThrows(IllegalArgumentException.class, () -> snapshot(B.class, A.class));
+  }
+}
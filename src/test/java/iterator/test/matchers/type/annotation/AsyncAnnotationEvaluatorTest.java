@@ -0,0 +1,172 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import iterator.test.matchers.type.annotation.AsyncAnnotationEvaluator.Expectation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncAnnotationEvaluatorTest {
+
+  @TestAnnotationWithValue("foo")
+  static class Compliant {}
+
+  @TestAnnotationWithValue("bar")
+  static class Offending {}
+
+  static class Unannotated {}
+
+  private static final AnnotationMap<TestAnnotationWithValue> FOO =
+      AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo");
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+  // holds tasks back until the test runs them
+  private final List<Runnable> held = new ArrayList<>();
+
+  private final AtomicInteger evaluated = new AtomicInteger();
+
+  private AnnotationMatcher<TestAnnotationWithValue, Object> counting() {
+    return new TypeAnnotationMatcher<TestAnnotationWithValue, Object>(FOO) {
+      @Override
+      protected TestAnnotationWithValue findAnnotation(Class<Object> item) {
+        evaluated.incrementAndGet();
+        return super.findAnnotation(item);
+      }
+    };
+  }
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldAggregateMismatchesInBatchOrder() throws Exception {
+    // given
+    AsyncAnnotationEvaluator evaluator = new AsyncAnnotationEvaluator(executor, 1);
+    List<Expectation> batch =
+        Arrays.asList(
+            Expectation.of(Unannotated.class, FOO),
+            Expectation.of(Compliant.class, FOO),
+            Expectation.of(Offending.class, FOO));
+    // when
+    AnnotationRuleReport actual = evaluator.evaluate(batch).get(10, TimeUnit.SECONDS);
+    // then
+    assertThat(actual.getClassesEvaluated(), is(3));
+    assertThat(
+        actual.getViolations().stream().map(Object::toString).collect(Collectors.toList()),
+        contains(
+            "[@TestAnnotationWithValue(\"foo\")] iterator.test.matchers.type.annotation.AsyncAnnotationEvaluatorTest$Unannotated type: null",
+            "[@TestAnnotationWithValue(\"foo\")] iterator.test.matchers.type.annotation.AsyncAnnotationEvaluatorTest$Offending type: @TestAnnotationWithValue(value: expected \"foo\" but was \"bar\")"));
+  }
+
+  @Test
+  void shouldCountEachClassOnceGivenSeveralExpectationsOfIt() throws Exception {
+    // given
+    AsyncAnnotationEvaluator evaluator = new AsyncAnnotationEvaluator(executor, 1);
+    List<Expectation> batch =
+        Arrays.asList(
+            Expectation.of(Compliant.class, FOO),
+            Expectation.of(Compliant.class, counting()),
+            Expectation.of(Offending.class, FOO));
+    // when
+    AnnotationRuleReport actual = evaluator.evaluate(batch).get(10, TimeUnit.SECONDS);
+    // then
+    assertThat(actual.getClassesEvaluated(), is(2));
+    assertThat(actual.getViolations(), hasSize(1));
+  }
+
+  @Test
+  void shouldCompleteEmptyBatchAtOnce() {
+    // given
+    AsyncAnnotationEvaluator evaluator = new AsyncAnnotationEvaluator(held::add);
+    // when
+    CompletableFuture<AnnotationRuleReport> actual = evaluator.evaluate(Collections.emptyList());
+    // then
+    assertThat(actual.isDone(), is(true));
+    assertThat(actual.join().isPassing(), is(true));
+  }
+
+  @Test
+  void shouldNotEvaluateChunksOfCancelledBatch() {
+    // given
+    AsyncAnnotationEvaluator evaluator = new AsyncAnnotationEvaluator(held::add, 1);
+    CompletableFuture<AnnotationRuleReport> actual =
+        evaluator.evaluate(
+            Arrays.asList(
+                Expectation.of(Compliant.class, counting()),
+                Expectation.of(Offending.class, counting())));
+    // when
+    actual.cancel(false);
+    held.forEach(Runnable::run);
+    // then
+    assertThat(actual.isCancelled(), is(true));
+    assertThat(evaluated.get(), is(0));
+  }
+
+  @Test
+  void shouldTimeOutAndStopRemainingChunks() {
+    // given
+    AsyncAnnotationEvaluator evaluator = new AsyncAnnotationEvaluator(held::add);
+    CompletableFuture<AnnotationRuleReport> actual =
+        evaluator.evaluate(
+            Collections.singletonList(Expectation.of(Compliant.class, counting())),
+            Duration.ofMillis(10));
+    // when
+    ExecutionException thrown =
+        assertThrows(ExecutionException.class, () -> actual.get(10, TimeUnit.SECONDS));
+    held.forEach(Runnable::run);
+    // then
+    assertThat(thrown.getCause(), is(instanceOf(TimeoutException.class)));
+    assertThat(evaluated.get(), is(0));
+  }
+
+  @Test
+  void shouldFailWithFirstMatcherFailure() {
+    // given
+    AsyncAnnotationEvaluator evaluator = new AsyncAnnotationEvaluator(executor);
+    AnnotationMatcher<TestAnnotationWithValue, Object> failing =
+        new TypeAnnotationMatcher<TestAnnotationWithValue, Object>(FOO) {
+          @Override
+          protected TestAnnotationWithValue findAnnotation(Class<Object> item) {
+            throw new IllegalStateException("boom");
+          }
+        };
+    CompletableFuture<AnnotationRuleReport> actual =
+        evaluator.evaluate(Collections.singletonList(Expectation.of(Compliant.class, failing)));
+    // when
+    ExecutionException thrown =
+        assertThrows(ExecutionException.class, () -> actual.get(10, TimeUnit.SECONDS));
+    // then
+    assertThat(thrown.getCause(), is(instanceOf(IllegalStateException.class)));
+    assertThat(thrown.getCause().getMessage(), is(equalTo("boom")));
+  }
+
+  @Test
+  void shouldThrowGivenNonPositiveChunkSize() {
+    // when
+    IllegalArgumentException actual =
+        assertThrows(
+            IllegalArgumentException.class, () -> new AsyncAnnotationEvaluator(executor, 0));
+    // then
+    assertThat(actual.getMessage(), is(equalTo("Chunk size must be positive but was 0")));
+  }
+}
@@ -0,0 +1,60 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.annotation.Annotation;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+class ConstructorAnnotationMatcherTest {
+
+  static class Sample {
+
+    @TestAnnotationWithValue("foo")
+    Sample() {}
+
+    Sample(String arg) {}
+  }
+
+  // class under test
+  private static <A extends Annotation, T> Matcher<Class<T>> hasConstructorAnnotation(
+      Class<?>[] parameterTypes, AnnotationMap<A> expected) {
+    return new ConstructorAnnotationMatcher<>(parameterTypes, expected);
+  }
+
+  @Test
+  void shouldMatchSimpleAnnotationWithValue() {
+    assertThat(
+        Sample.class,
+        new ConstructorAnnotationMatcher<>(
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo")));
+  }
+
+  @Test
+  void shouldNotMatchSimpleAnnotationWithValue() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasConstructorAnnotation(
+                  new Class<?>[0],
+                  AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar")));
+        });
+  }
+
+  @Test
+  void shouldNotMatchUnannotatedConstructor() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasConstructorAnnotation(
+                  new Class<?>[] {String.class},
+                  AnnotationMap.from(TestAnnotationWithValue.class)));
+        });
+  }
+}
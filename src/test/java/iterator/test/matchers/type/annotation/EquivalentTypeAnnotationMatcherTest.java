@@ -0,0 +1,87 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.annotation.Annotation;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+class EquivalentTypeAnnotationMatcherTest {
+
+  @TestAnnotationWithValue("foo")
+  static class Reference {}
+
+  @TestAnnotationWithValue(value = "foo", anotherProperty = "bar")
+  static class Same {}
+
+  @TestAnnotationWithValue(value = "foo", anotherProperty = "baz")
+  static class Different {}
+
+  static class Unannotated {}
+
+  // class under test
+  private static <A extends Annotation, T> Matcher<Class<T>> hasSameTypeAnnotationAs(
+      Class<A> annotationType, Class<?> reference) {
+    return new EquivalentTypeAnnotationMatcher<>(annotationType, reference);
+  }
+
+  @Test
+  void shouldMatchEqualAnnotationOnOtherClass() {
+    assertThat(Same.class, hasSameTypeAnnotationAs(TestAnnotationWithValue.class, Reference.class));
+  }
+
+  @Test
+  void shouldMatchSameAnnotationInstance() {
+    assertThat(
+        Reference.class, hasSameTypeAnnotationAs(TestAnnotationWithValue.class, Reference.class));
+  }
+
+  @Test
+  void shouldDescribeDifferencesGivenDifferentAnnotation() {
+    // given
+    Matcher<Class<Different>> matcher =
+        hasSameTypeAnnotationAs(TestAnnotationWithValue.class, Reference.class);
+    // when
+    AssertionError actual =
+        assertThrows(AssertionError.class, () -> assertThat(Different.class, matcher));
+    // then
+    assertThat(
+        actual.getMessage(),
+        containsString(
+            "Expected: @TestAnnotationWithValue(\"foo\") as on " + Reference.class.getName()));
+    assertThat(
+        actual.getMessage(),
+        containsString(
+            "but: @TestAnnotationWithValue(anotherProperty: expected \"bar\" but was \"baz\")"));
+  }
+
+  @Test
+  void shouldNotMatchClassWithoutAnnotation() {
+    // given
+    Matcher<Class<Unannotated>> matcher =
+        hasSameTypeAnnotationAs(TestAnnotationWithValue.class, Reference.class);
+    // when
+    AssertionError actual =
+        assertThrows(AssertionError.class, () -> assertThat(Unannotated.class, matcher));
+    // then
+    assertThat(actual.getMessage(), containsString("but: null"));
+  }
+
+  @Test
+  void shouldThrowGivenReferenceWithoutAnnotation() {
+    // when
+    IllegalArgumentException actual =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> hasSameTypeAnnotationAs(TestAnnotationWithValue.class, Unannotated.class));
+    // then
+    assertThat(
+        actual.getMessage(),
+        is(
+            equalTo(
+                "Reference " + Unannotated.class.getName() + " has no @TestAnnotationWithValue")));
+  }
+}
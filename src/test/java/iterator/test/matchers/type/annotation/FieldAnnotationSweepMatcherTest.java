@@ -0,0 +1,94 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Field;
+import java.util.function.Predicate;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+class FieldAnnotationSweepMatcherTest {
+
+  static class Parent {
+
+    @TestAnnotationWithValue("foo")
+    String inherited;
+  }
+
+  static class Sample extends Parent {
+
+    @TestAnnotationWithValue("foo")
+    String first;
+
+    @TestAnnotationWithValue("foo")
+    String second;
+
+    int ignored;
+  }
+
+  static class Offending extends Parent {
+
+    @TestAnnotationWithValue("bar")
+    String first;
+
+    String second;
+  }
+
+  private static final Predicate<Field> STRINGS = field -> String.class.equals(field.getType());
+
+  // class under test
+  private static <T> Matcher<Class<T>> hasAnnotatedFields(
+      Predicate<Field> selector, AnnotationMap<?>... expected) {
+    return new FieldAnnotationSweepMatcher<>(selector, expected);
+  }
+
+  @Test
+  void shouldMatchGivenAllSelectedFieldsAnnotated() {
+    assertThat(
+        Sample.class,
+        hasAnnotatedFields(
+            STRINGS, AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo")));
+  }
+
+  @Test
+  void shouldNotMatchGivenSecondExpectedAnnotationMissing() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasAnnotatedFields(
+                  STRINGS,
+                  AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"),
+                  AnnotationMap.from(TestAnnotationWithoutValue.class)));
+        });
+  }
+
+  @Test
+  void shouldReportAllOffendingFieldsWhenDescribingMismatch() {
+    // when
+    AssertionError error =
+        assertThrows(
+            AssertionError.class,
+            () ->
+                assertThat(
+                    Offending.class,
+                    hasAnnotatedFields(
+                        STRINGS,
+                        AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"))));
+    // then
+    assertThat(
+        error.getMessage(),
+        containsString(
+            "but: field 'first' of Offending differed @TestAnnotationWithValue(value: expected \"foo\" but was \"bar\"), field 'second' of Offending was null"));
+    assertThat(error.getMessage(), not(containsString("inherited")));
+  }
+
+  @Test
+  void shouldThrowGivenNoExpectedAnnotations() {
+    assertThrows(IllegalArgumentException.class, () -> new FieldAnnotationSweepMatcher<>(STRINGS));
+  }
+}
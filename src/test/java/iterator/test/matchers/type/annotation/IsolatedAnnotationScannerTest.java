@@ -0,0 +1,122 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IsolatedAnnotationScannerTest {
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Typed {
+    Class<?> value();
+  }
+
+  static class Missing {}
+
+  @Typed(Missing.class)
+  static class Unreadable {}
+
+  @Typed(Object.class)
+  static class Readable {}
+
+  private static Path testClasses() throws Exception {
+    return Paths.get(
+        IsolatedAnnotationScannerTest.class
+            .getProtectionDomain()
+            .getCodeSource()
+            .getLocation()
+            .toURI());
+  }
+
+  private static AnnotationIndex scan(Class<? extends Annotation> annotationType) throws Exception {
+    return new IsolatedAnnotationScanner(7, Collections.singletonList(annotationType))
+        .scan(IsolatedAnnotationScannerTest.class.getClassLoader(), testClasses());
+  }
+
+  @Test
+  void shouldExtractTypeAnnotationsAsMapsOfParentTypes() throws Exception {
+    // given
+    TestAnnotationWithValue expected =
+        TypeAnnotationMatcherTest.class.getAnnotation(TestAnnotationWithValue.class);
+    // when
+    AnnotationIndex actual = scan(TestAnnotationWithValue.class);
+    // then
+    assertThat(
+        actual.getClassesAnnotatedWith(TestAnnotationWithValue.class),
+        hasItems(
+            TypeAnnotationMatcherTest.class.getName(),
+            EquivalentTypeAnnotationMatcherTest.Reference.class.getName()));
+    AnnotationMap<TestAnnotationWithValue> map =
+        actual.getTypeAnnotation(
+            TypeAnnotationMatcherTest.class.getName(), TestAnnotationWithValue.class);
+    assertThat(map.getAnnotationClass(), is(sameInstance(TestAnnotationWithValue.class)));
+    assertThat(map, is(equalTo(AnnotationMap.of(expected))));
+  }
+
+  @Test
+  void shouldExtractFieldAnnotationsOfEveryMemberType() throws Exception {
+    // when
+    AnnotationIndex actual = scan(TestAnnotationWithoutValue.class);
+    // then
+    Map<String, AnnotationMap<TestAnnotationWithoutValue>> fields =
+        actual.getFieldAnnotations(
+            AnnotationMapTest.class.getName(), TestAnnotationWithoutValue.class);
+    Field[] annotated =
+        Arrays.stream(AnnotationMapTest.class.getDeclaredFields())
+            .filter(field -> field.isAnnotationPresent(TestAnnotationWithoutValue.class))
+            .toArray(Field[]::new);
+    assertThat(fields.size(), is(equalTo(annotated.length)));
+    for (Field field : annotated)
+      assertThat(
+          field.getName(),
+          fields.get(field.getName()),
+          is(equalTo(AnnotationMap.of(field.getAnnotation(TestAnnotationWithoutValue.class)))));
+  }
+
+  @Test
+  void shouldOnlyExtractRequestedAnnotationTypes() throws Exception {
+    // when
+    AnnotationIndex actual = scan(TestAnnotationWithValue.class);
+    // then
+    assertThat(actual.getClassesAnnotatedWith(TestAnnotationWithoutValue.class), is(empty()));
+  }
+
+  @Test
+  void shouldReportClassWithUnreadableAnnotationsAsUnloadable(@TempDir Path dir) throws Exception {
+    // given
+    Path jar = AnnotationBloomFilterTest.jarOf(dir, Typed.class, Unreadable.class, Readable.class);
+    IsolatedAnnotationScanner scanner =
+        new IsolatedAnnotationScanner(Collections.singletonList(Typed.class));
+    // when
+    AnnotationIndex actual = scanner.scan(ClassLoader.getPlatformClassLoader(), jar);
+    // then
+    assertThat(actual.getUnloadable(), contains(Unreadable.class.getName()));
+    assertThat(actual.getClassesAnnotatedWith(Typed.class), contains(Readable.class.getName()));
+  }
+
+  @Test
+  void shouldThrowGivenNonPositiveBatchSize() {
+    // when
+    IllegalArgumentException actual =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                new IsolatedAnnotationScanner(
+                    0, Collections.singletonList(TestAnnotationWithValue.class)));
+    // then
+    assertThat(actual.getMessage(), is(equalTo("Batch size must be positive but was 0")));
+  }
+}
@@ -0,0 +1,107 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MemberTableTest {
+
+  interface Named {
+
+    default String name() {
+      return null;
+    }
+
+    static Named unnamed() {
+      return null;
+    }
+  }
+
+  interface Titled extends Named {}
+
+  static class Sample {
+
+    Object value() {
+      return null;
+    }
+
+    void method(String arg) {}
+
+    List<String[]> list;
+  }
+
+  static class CovariantSample extends Sample {
+
+    @Override
+    String value() {
+      return null;
+    }
+  }
+
+  static class TitledSample implements Titled {}
+
+  @Test
+  void shouldReturnSameTableForSameClass() {
+    assertThat(MemberTable.of(Sample.class), is(sameInstance(MemberTable.of(Sample.class))));
+  }
+
+  @Test
+  void shouldReturnSignatureWithParameterTypeNames() {
+    assertThat(
+        MemberTable.signature("method", String.class, int[].class),
+        is("method(java.lang.String,[I)"));
+  }
+
+  @Test
+  void shouldReturnSameMethodForRepeatedLookups() {
+    Method first = MemberTable.of(Sample.class).method("method", String.class);
+    Method second = MemberTable.of(Sample.class).method("method", String.class);
+    assertThat(first, is(notNullValue()));
+    assertThat(first, is(sameInstance(second)));
+  }
+
+  @Test
+  void shouldReturnOverrideRatherThanBridgeGivenCovariantReturnType() {
+    Method method = MemberTable.of(CovariantSample.class).method("value");
+    assertThat(method.getReturnType(), is((Object) String.class));
+  }
+
+  @Test
+  void shouldReturnDefaultMethodInheritedFromInterface() {
+    Method method = MemberTable.of(TitledSample.class).method("name");
+    assertThat(method.getDeclaringClass(), is((Object) Named.class));
+  }
+
+  @Test
+  void shouldReturnNullGivenStaticInterfaceMethod() {
+    assertThat(MemberTable.of(TitledSample.class).method("unnamed"), is(nullValue()));
+  }
+
+  @Test
+  void shouldReturnSameParameterForRepeatedLookups() {
+    MemberTable table = MemberTable.of(Sample.class);
+    Parameter first = table.parameter(table.method("method", String.class), 0);
+    Parameter second = table.parameter(table.method("method", String.class), 0);
+    assertThat(first, is(sameInstance(second)));
+  }
+
+  @Test
+  void shouldReturnNullGivenClassIsNotRecordWhenRecordComponent() {
+    assertThat(MemberTable.of(Sample.class).recordComponent("value"), is(nullValue()));
+  }
+
+  @Test
+  void shouldReturnSameAnnotatedTypeForEqualTypePaths() {
+    MemberTable table = MemberTable.of(Sample.class);
+    AnnotatedType first = table.annotatedType(TypePath.field("list").typeArgument(0));
+    AnnotatedType second = table.annotatedType(TypePath.field("list").typeArgument(0));
+    assertThat(first.getType(), is((Object) String[].class));
+    assertThat(first, is(sameInstance(second)));
+  }
+}
@@ -0,0 +1,99 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.annotation.Annotation;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+class MethodAnnotationMatcherTest {
+
+  static class Sample {
+
+    @TestAnnotationWithValue("foo")
+    void annotated() {}
+
+    @TestAnnotationWithValue("bar")
+    void annotated(String arg) {}
+
+    void unannotated() {}
+  }
+
+  static class SubSample extends Sample {}
+
+  // class under test
+  private static <A extends Annotation, T> Matcher<Class<T>> hasMethodAnnotation(
+      String methodName, Class<?>[] parameterTypes, AnnotationMap<A> expected) {
+    return new MethodAnnotationMatcher<>(methodName, parameterTypes, expected);
+  }
+
+  @Test
+  void shouldMatchSimpleAnnotationWithValue() {
+    assertThat(
+        Sample.class,
+        new MethodAnnotationMatcher<>(
+            "annotated", AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo")));
+  }
+
+  @Test
+  void shouldMatchOverloadGivenParameterTypes() {
+    assertThat(
+        Sample.class,
+        hasMethodAnnotation(
+            "annotated",
+            new Class<?>[] {String.class},
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar")));
+  }
+
+  @Test
+  void shouldMatchInheritedMethod() {
+    assertThat(
+        SubSample.class,
+        hasMethodAnnotation(
+            "annotated",
+            new Class<?>[0],
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo")));
+  }
+
+  @Test
+  void shouldNotMatchSimpleAnnotationWithValue() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasMethodAnnotation(
+                  "annotated",
+                  new Class<?>[] {String.class},
+                  AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo")));
+        });
+  }
+
+  @Test
+  void shouldNotMatchUnannotatedMethod() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasMethodAnnotation(
+                  "unannotated",
+                  new Class<?>[0],
+                  AnnotationMap.from(TestAnnotationWithValue.class)));
+        });
+  }
+
+  @Test
+  void shouldNotMatchMissingMethod() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasMethodAnnotation(
+                  "missing", new Class<?>[0], AnnotationMap.from(TestAnnotationWithValue.class)));
+        });
+  }
+}
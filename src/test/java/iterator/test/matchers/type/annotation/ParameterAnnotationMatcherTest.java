@@ -0,0 +1,76 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.annotation.Annotation;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+class ParameterAnnotationMatcherTest {
+
+  static class Sample {
+
+    Sample(String first, @TestAnnotationWithValue("foo") String second) {}
+
+    void method(@TestAnnotationWithValue("bar") int first, String second) {}
+  }
+
+  // class under test
+  private static <A extends Annotation, T> Matcher<Class<T>> hasParameterAnnotation(
+      String methodName, Class<?>[] parameterTypes, int index, AnnotationMap<A> expected) {
+    return new ParameterAnnotationMatcher<>(methodName, parameterTypes, index, expected);
+  }
+
+  @Test
+  void shouldMatchMethodParameterAnnotation() {
+    assertThat(
+        Sample.class,
+        hasParameterAnnotation(
+            "method",
+            new Class<?>[] {int.class, String.class},
+            0,
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar")));
+  }
+
+  @Test
+  void shouldMatchConstructorParameterAnnotation() {
+    assertThat(
+        Sample.class,
+        new ParameterAnnotationMatcher<>(
+            new Class<?>[] {String.class, String.class},
+            1,
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo")));
+  }
+
+  @Test
+  void shouldNotMatchUnannotatedParameter() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasParameterAnnotation(
+                  "method",
+                  new Class<?>[] {int.class, String.class},
+                  1,
+                  AnnotationMap.from(TestAnnotationWithValue.class)));
+        });
+  }
+
+  @Test
+  void shouldNotMatchParameterIndexOutOfRange() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasParameterAnnotation(
+                  "method",
+                  new Class<?>[] {int.class, String.class},
+                  2,
+                  AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar")));
+        });
+  }
+}
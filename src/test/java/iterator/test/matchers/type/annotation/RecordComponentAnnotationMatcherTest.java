@@ -0,0 +1,136 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// records need java 16, so the sample is compiled when the tests run rather than with them
+class RecordComponentAnnotationMatcherTest {
+
+  private static final class Source extends SimpleJavaFileObject {
+
+    private final String code;
+
+    private Source(String name, String code) {
+      super(URI.create("string:///sample/" + name + ".java"), Kind.SOURCE);
+      this.code = code;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return code;
+    }
+  }
+
+  private static final String TAG =
+      String.join(
+          "\n",
+          "package sample;",
+          "import java.lang.annotation.*;",
+          "@Target(ElementType.RECORD_COMPONENT)",
+          "@Retention(RetentionPolicy.RUNTIME)",
+          "public @interface Tag { String value(); }");
+
+  private static final String POINT =
+      String.join("\n", "package sample;", "public record Point(@Tag(\"x\") int x, int y) {}");
+
+  // class under test
+  private static <A extends Annotation, T> Matcher<Class<T>> hasRecordComponentAnnotation(
+      String componentName, AnnotationMap<A> expected) {
+    return new RecordComponentAnnotationMatcher<>(componentName, expected);
+  }
+
+  // the sample types only exist at runtime, so they are typed as the tests use them here
+  @SuppressWarnings("unchecked")
+  private static <T> Class<T> load(ClassLoader loader, String name) throws Exception {
+    return (Class<T>) loader.loadClass(name);
+  }
+
+  @TempDir Path dir;
+
+  private URLClassLoader loader;
+
+  private Class<Object> point;
+
+  private Class<Annotation> tag;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    assumeTrue(Runtime.version().feature() >= 16, "records need java 16");
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    boolean compiled =
+        compiler
+            .getTask(
+                null,
+                null,
+                null,
+                Arrays.asList("--release", "16", "-d", dir.toString()),
+                null,
+                Arrays.<JavaFileObject>asList(new Source("Tag", TAG), new Source("Point", POINT)))
+            .call();
+    assertThat(compiled, is(true));
+    loader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, getClass().getClassLoader());
+    point = load(loader, "sample.Point");
+    tag = load(loader, "sample.Tag");
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (loader != null) loader.close();
+  }
+
+  @Test
+  void shouldMatchAnnotatedRecordComponent() {
+    assertThat(point, hasRecordComponentAnnotation("x", AnnotationMap.from(tag).set("value", "x")));
+  }
+
+  @Test
+  void shouldNotMatchRecordComponentWithDifferentValue() {
+    assertThrows(
+        AssertionError.class,
+        () ->
+            assertThat(
+                point,
+                hasRecordComponentAnnotation("x", AnnotationMap.from(tag).set("value", "y"))));
+  }
+
+  @Test
+  void shouldNotMatchUnannotatedRecordComponent() {
+    assertThrows(
+        AssertionError.class,
+        () -> assertThat(point, hasRecordComponentAnnotation("y", AnnotationMap.from(tag))));
+  }
+
+  @Test
+  void shouldDescribeMismatchedRecordComponentValue() {
+    // given
+    Matcher<Class<Object>> matcher =
+        hasRecordComponentAnnotation("x", AnnotationMap.from(tag).set("value", "y"));
+    Description description = new StringDescription();
+    // when
+    matcher.describeMismatch(point, description);
+    // then
+    assertThat(description.toString(), containsString("expected \"y\" but was \"x\""));
+  }
+}
@@ -0,0 +1,148 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@TestAnnotationWithValue("foo")
+class SimpleAnnotationMetricsTest {
+
+  @TestAnnotationWithValue("foo")
+  String field;
+
+  private SimpleAnnotationMetrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    metrics = new SimpleAnnotationMetrics();
+    AnnotationMetrics.install(metrics);
+  }
+
+  @AfterEach
+  void tearDown() {
+    AnnotationMetrics.install(null);
+  }
+
+  @Test
+  void shouldCountMatchesAndMismatchesPerAnnotationType() {
+    // given
+    Matcher<Class<SimpleAnnotationMetricsTest>> matching =
+        new TypeAnnotationMatcher<>(
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"));
+    Matcher<Class<SimpleAnnotationMetricsTest>> mismatching =
+        new TypeAnnotationMatcher<>(
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar"));
+    // when
+    matching.matches(SimpleAnnotationMetricsTest.class);
+    matching.matches(SimpleAnnotationMetricsTest.class);
+    mismatching.matches(SimpleAnnotationMetricsTest.class);
+    mismatching.describeMismatch(SimpleAnnotationMetricsTest.class, new StringDescription());
+    // then
+    SimpleAnnotationMetrics.TypeStats actual = metrics.getTypeStats(TestAnnotationWithValue.class);
+    assertThat(actual.getEvaluations(), is(3L));
+    assertThat(actual.getMatches(), is(2L));
+    assertThat(actual.getMismatches(), is(1L));
+    assertThat(actual.getMatchRatio(), is(closeTo(2.0 / 3, 1e-9)));
+    assertThat(actual.getEvaluationLatency().getCount(), is(3L));
+    assertThat(actual.getMismatchDescriptionLatency().getCount(), is(1L));
+  }
+
+  @Test
+  void shouldEstimateAllocationWhenMapCreated() {
+    // when
+    AnnotationMap.from(TestAnnotationWithValue.class);
+    // then
+    SimpleAnnotationMetrics.TypeStats actual = metrics.getTypeStats(TestAnnotationWithValue.class);
+    assertThat(actual.getMapsCreated(), is(1L));
+    assertThat(actual.getEstimatedBytes(), is(greaterThan(0L)));
+  }
+
+  @Test
+  void shouldReportCacheHitsGivenRepeatedAccess() {
+    // when
+    AnnotationSchema.of(TestAnnotationWithValue.class);
+    AnnotationSchema.of(TestAnnotationWithValue.class);
+    // then
+    SimpleAnnotationMetrics.CacheStats actual =
+        metrics.getCacheStats(AnnotationMetrics.ANNOTATION_SCHEMA);
+    assertThat(actual.getAccesses(), is(2L));
+    assertThat(actual.getHitRatio(), is(1.0));
+  }
+
+  @Test
+  void shouldReportCacheHitsPerAnnotationType() {
+    // given
+    class Fresh {}
+    // when
+    AnnotationPresence.onType(Fresh.class, TestAnnotationWithValue.class);
+    AnnotationPresence.onType(Fresh.class, TestAnnotationWithValue.class);
+    AnnotationPresence.onType(Fresh.class, TestAnnotationWithoutValue.class);
+    // then
+    SimpleAnnotationMetrics.CacheStats first =
+        metrics
+            .getTypeStats(TestAnnotationWithValue.class)
+            .getCacheStats(AnnotationMetrics.ANNOTATION_PRESENCE);
+    SimpleAnnotationMetrics.CacheStats second =
+        metrics
+            .getTypeStats(TestAnnotationWithoutValue.class)
+            .getCacheStats(AnnotationMetrics.ANNOTATION_PRESENCE);
+    assertThat(first.getAccesses(), is(2L));
+    assertThat(first.getHitRatio(), is(0.5));
+    assertThat(second.getAccesses(), is(1L));
+    assertThat(second.getHitRatio(), is(1.0));
+    assertThat(metrics.getCacheStats(AnnotationMetrics.ANNOTATION_PRESENCE).getAccesses(), is(3L));
+  }
+
+  @Test
+  void shouldCountEvaluationsPerAnnotationTypeGivenTypeAnnotationsMatcher() {
+    // given
+    Matcher<Class<SimpleAnnotationMetricsTest>> matcher =
+        new TypeAnnotationsMatcher<>(
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"),
+            AnnotationMap.from(TestAnnotationWithoutValue.class));
+    // when
+    matcher.matches(SimpleAnnotationMetricsTest.class);
+    matcher.describeMismatch(SimpleAnnotationMetricsTest.class, new StringDescription());
+    // then
+    assertThat(metrics.getTypeStats(TestAnnotationWithValue.class).getMatches(), is(1L));
+    SimpleAnnotationMetrics.TypeStats actual =
+        metrics.getTypeStats(TestAnnotationWithoutValue.class);
+    assertThat(actual.getMismatches(), is(1L));
+    assertThat(actual.getMismatchDescriptionLatency().getCount(), is(1L));
+  }
+
+  @Test
+  void shouldCountEvaluationsPerFieldGivenFieldAnnotationSweepMatcher() {
+    // given
+    Matcher<Class<SimpleAnnotationMetricsTest>> matcher =
+        new FieldAnnotationSweepMatcher<>(
+            field -> field.getName().equals("field"),
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar"));
+    // when
+    matcher.matches(SimpleAnnotationMetricsTest.class);
+    matcher.describeMismatch(SimpleAnnotationMetricsTest.class, new StringDescription());
+    // then
+    SimpleAnnotationMetrics.TypeStats actual = metrics.getTypeStats(TestAnnotationWithValue.class);
+    assertThat(actual.getEvaluations(), is(1L));
+    assertThat(actual.getMismatches(), is(1L));
+    assertThat(actual.getMismatchDescriptionLatency().getCount(), is(1L));
+  }
+
+  @Test
+  void shouldReturnBucketUpperBoundForPercentile() {
+    // given
+    SimpleAnnotationMetrics.LatencyHistogram histogram =
+        new SimpleAnnotationMetrics.LatencyHistogram();
+    // when
+    histogram.record(5);
+    histogram.record(100);
+    // then
+    assertThat(histogram.getPercentile(50), is(7L));
+    assertThat(histogram.getPercentile(100), is(127L));
+  }
+}
@@ -0,0 +1,17 @@
+package iterator.test.matchers.type.annotation;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+// read through TestAnnotationWithMetadataMap, leaving the other test annotations to reflection
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface TestAnnotationWithMetadata {
+
+  String value();
+
+  String anotherProperty() default "bar";
+}
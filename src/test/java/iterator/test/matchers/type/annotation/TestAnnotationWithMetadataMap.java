@@ -0,0 +1,58 @@
+package iterator.test.matchers.type.annotation;
+
+// written as the processor would generate it, the processor module cannot run on these sources
+public final class TestAnnotationWithMetadataMap
+    implements AnnotationMetadata<TestAnnotationWithMetadata> {
+
+  public static final class Builder
+      extends AnnotationMapBuilder<TestAnnotationWithMetadata, Builder> {
+
+    private Builder() {
+      super(TestAnnotationWithMetadata.class);
+    }
+
+    public Builder anotherProperty(String anotherProperty) {
+      return member(0, anotherProperty);
+    }
+
+    public Builder value(String value) {
+      return member(1, value);
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public Class<TestAnnotationWithMetadata> annotationType() {
+    return TestAnnotationWithMetadata.class;
+  }
+
+  @Override
+  public Object[] memberDefaults() {
+    return new Object[] {"bar", null};
+  }
+
+  @Override
+  public String[] memberNames() {
+    return new String[] {"anotherProperty", "value"};
+  }
+
+  @Override
+  public Class<?>[] memberTypes() {
+    return new Class<?>[] {String.class, String.class};
+  }
+
+  @Override
+  public Object memberValue(TestAnnotationWithMetadata annotation, int index) {
+    switch (index) {
+      case 0:
+        return annotation.anotherProperty();
+      case 1:
+        return annotation.value();
+      default:
+        throw new IndexOutOfBoundsException(index);
+    }
+  }
+}
@@ -1,14 +1,16 @@
 package iterator.test.matchers.type.annotation;
 
+import static java.lang.annotation.ElementType.CONSTRUCTOR;
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.ElementType.TYPE;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
-@Target({METHOD, FIELD, TYPE})
+@Target({METHOD, FIELD, TYPE, CONSTRUCTOR, PARAMETER})
 @Retention(RUNTIME)
 public @interface TestAnnotationWithValue {
 
@@ -5,19 +5,33 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.lang.annotation.Annotation;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.hamcrest.Description;
 import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
 import org.junit.jupiter.api.Test;
 
 @TestAnnotationWithValue("foo")
 class TypeAnnotationMatcherTest {
 
+  @TestAnnotationWithMetadata("foo")
+  static class WithMetadata {}
+
   // class under test
   private static <A extends Annotation, T> Matcher<Class<T>> hasTypeAnnotation(
       AnnotationMap<A> expected) {
     return new TypeAnnotationMatcher<>(expected);
   }
 
+  // members are read through the generated metadata only, as in reflection free mode
+  private static AnnotationMap<TestAnnotationWithMetadata> reflectionFree(String value) {
+    AnnotationSchema<TestAnnotationWithMetadata> schema =
+        AnnotationSchema.create(
+            TestAnnotationWithMetadata.class, new TestAnnotationWithMetadataMap(), true, false);
+    return AnnotationMap.ofMembers(schema, new Object[] {"bar", value});
+  }
+
   @Test
   void shouldMatchSimpleAnnotationWithValue() throws Exception {
     assertThat(
@@ -47,4 +61,48 @@ class TypeAnnotationMatcherTest {
               hasTypeAnnotation(AnnotationMap.from(TestAnnotationWithValue.class)));
         });
   }
+
+  @Test
+  void shouldMatchAndDescribeMismatchGivenReflectionFreeMaps() {
+    // given
+    Matcher<Class<WithMetadata>> matching = hasTypeAnnotation(reflectionFree("foo"));
+    Matcher<Class<WithMetadata>> mismatching = hasTypeAnnotation(reflectionFree("baz"));
+    Description description = new StringDescription();
+    // when
+    boolean matched = matching.matches(WithMetadata.class);
+    boolean mismatched = mismatching.matches(WithMetadata.class);
+    mismatching.describeMismatch(WithMetadata.class, description);
+    // then
+    assertThat(AnnotationSchema.of(TestAnnotationWithMetadata.class).isReflective(), is(false));
+    assertThat(matched, is(true));
+    assertThat(mismatched, is(false));
+    assertThat(
+        description.toString(),
+        is(equalTo("@TestAnnotationWithMetadata(value: expected \"baz\" but was \"foo\")")));
+  }
+
+  @Test
+  void shouldLookUpAnnotationOnceGivenMismatchIsDescribed() throws Exception {
+    // given
+    AtomicInteger lookups = new AtomicInteger();
+    Matcher<Class<TypeAnnotationMatcherTest>> matcher =
+        new TypeAnnotationMatcher<TestAnnotationWithValue, TypeAnnotationMatcherTest>(
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar")) {
+
+          @Override
+          protected TestAnnotationWithValue findAnnotation(Class<TypeAnnotationMatcherTest> item) {
+            lookups.incrementAndGet();
+            return super.findAnnotation(item);
+          }
+        };
+    // when
+    AssertionError error =
+        assertThrows(
+            AssertionError.class, () -> assertThat(TypeAnnotationMatcherTest.class, matcher));
+    // then
+    assertThat(lookups.get(), is(1));
+    assertThat(
+        error.getMessage(),
+        containsString("but: @TestAnnotationWithValue(value: expected \"bar\" but was \"foo\")"));
+  }
 }
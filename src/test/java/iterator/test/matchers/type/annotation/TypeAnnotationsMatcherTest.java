@@ -0,0 +1,62 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+class TypeAnnotationsMatcherTest {
+
+  @TestAnnotationWithValue("foo")
+  @TestAnnotationWithoutValue(stringProperty = "bar")
+  static class Sample {}
+
+  // class under test
+  private static <T> Matcher<Class<T>> hasTypeAnnotations(AnnotationMap<?>... expected) {
+    return new TypeAnnotationsMatcher<>(expected);
+  }
+
+  @Test
+  void shouldMatchAllExpectedAnnotations() {
+    assertThat(
+        Sample.class,
+        hasTypeAnnotations(
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"),
+            AnnotationMap.from(TestAnnotationWithoutValue.class).set("stringProperty", "bar"),
+            AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo")));
+  }
+
+  @Test
+  void shouldNotMatchGivenAnyExpectationFails() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasTypeAnnotations(
+                  AnnotationMap.from(TestAnnotationWithValue.class).set("value", "foo"),
+                  AnnotationMap.from(TestAnnotationWithoutValue.class)));
+        });
+  }
+
+  @Test
+  void shouldReportEveryFailedExpectationWhenDescribingMismatch() {
+    // when
+    AssertionError error =
+        assertThrows(
+            AssertionError.class,
+            () ->
+                assertThat(
+                    Sample.class,
+                    hasTypeAnnotations(
+                        AnnotationMap.from(TestAnnotationWithValue.class).set("value", "bar"),
+                        AnnotationMap.from(TestAnnotationWithNullArrayDefault.class))));
+    // then
+    assertThat(
+        error.getMessage(),
+        containsString(
+            "but: @TestAnnotationWithValue(value: expected \"bar\" but was \"foo\"), expected @TestAnnotationWithNullArrayDefault(UNDEFINED) but was null"));
+  }
+}
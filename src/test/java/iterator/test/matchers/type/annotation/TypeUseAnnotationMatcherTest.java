@@ -0,0 +1,119 @@
+package iterator.test.matchers.type.annotation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Map;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+class TypeUseAnnotationMatcherTest {
+
+  static class Sample {
+
+    List<@TestTypeUseAnnotation("element") String> list;
+
+    Map<String, @TestTypeUseAnnotation("component") String[]> map;
+
+    List<? extends @TestTypeUseAnnotation("bound") CharSequence> wildcard;
+
+    @TestTypeUseAnnotation("return")
+    String method(List<@TestTypeUseAnnotation("parameter") Integer> arg) {
+      return null;
+    }
+
+    Sample(@TestTypeUseAnnotation("constructor") String arg) {}
+  }
+
+  // class under test
+  private static <A extends Annotation, T> Matcher<Class<T>> hasTypeUseAnnotation(
+      TypePath path, AnnotationMap<A> expected) {
+    return new TypeUseAnnotationMatcher<>(path, expected);
+  }
+
+  private static AnnotationMap<TestTypeUseAnnotation> typeUse(String value) {
+    return AnnotationMap.from(TestTypeUseAnnotation.class).set("value", value);
+  }
+
+  @Test
+  void shouldMatchFieldTypeArgument() {
+    assertThat(
+        Sample.class,
+        hasTypeUseAnnotation(TypePath.field("list").typeArgument(0), typeUse("element")));
+  }
+
+  @Test
+  void shouldMatchFieldTypeArgumentArrayComponent() {
+    assertThat(
+        Sample.class,
+        hasTypeUseAnnotation(
+            TypePath.field("map").typeArgument(1).arrayComponent(), typeUse("component")));
+  }
+
+  @Test
+  void shouldMatchWildcardUpperBound() {
+    assertThat(
+        Sample.class,
+        hasTypeUseAnnotation(
+            TypePath.field("wildcard").typeArgument(0).upperBound(0), typeUse("bound")));
+  }
+
+  @Test
+  void shouldMatchMethodReturnType() {
+    assertThat(
+        Sample.class,
+        hasTypeUseAnnotation(TypePath.methodReturn("method", List.class), typeUse("return")));
+  }
+
+  @Test
+  void shouldMatchMethodParameterTypeArgument() {
+    assertThat(
+        Sample.class,
+        hasTypeUseAnnotation(
+            TypePath.methodParameter("method", new Class<?>[] {List.class}, 0).typeArgument(0),
+            typeUse("parameter")));
+  }
+
+  @Test
+  void shouldMatchConstructorParameter() {
+    assertThat(
+        Sample.class,
+        hasTypeUseAnnotation(
+            TypePath.constructorParameter(new Class<?>[] {String.class}, 0),
+            typeUse("constructor")));
+  }
+
+  @Test
+  void shouldNotMatchUnannotatedTypeArgument() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasTypeUseAnnotation(TypePath.field("map").typeArgument(0), typeUse("component")));
+        });
+  }
+
+  @Test
+  void shouldNotMatchPathNotPresentInType() {
+    assertThrows(
+        AssertionError.class,
+        () -> {
+          assertThat(
+              Sample.class,
+              hasTypeUseAnnotation(
+                  TypePath.field("list").typeArgument(0).arrayComponent(), typeUse("element")));
+        });
+  }
+
+  @Test
+  void shouldDescribeTypePath() {
+    assertThat(
+        TypePath.field("map").typeArgument(1).arrayComponent().toString(),
+        is("field 'map', type argument 1, array component"));
+  }
+}